@@ -0,0 +1,189 @@
+import util.Connectivity;
+import util.RunnerProfile;
+import util.point.Control;
+import util.season.Season;
+import util.terrain.ElevationGrid;
+import util.terrain.PixelColor;
+import util.terrain.Terrain;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Checks that the components an index finds by flooding only what changed are those a fresh index
+ * finds. For every terrain of the data directory and every runner profile, the index of each season
+ * from {@link Connectivity#forSeason} and the index of a randomly edited terrain from
+ * {@link Connectivity#edited} are compared pixel by pixel with an index built from scratch. Two indexes
+ * agree when they block the same pixels and split the rest into the same components, whatever the
+ * labels. Exits with status 1 if any pixel differs.
+ *
+ * @author Alex Wall
+ */
+public class ConnectivityHarness {
+
+    /**
+     * number of rings and clearings drawn on each edited terrain when none is given
+     */
+    private static final int DEFAULT_EDITS = 40;
+
+    /**
+     * widest ring or clearing drawn, in pixels
+     */
+    private static final int EDIT_SIZE = 30;
+
+    /**
+     * seed of the edits, so a mismatch can be run again
+     */
+    private static final long SEED = 8675L;
+
+    /**
+     * Runs the harness
+     *
+     * @param args 0: the data directory, "data" if not given
+     *             1: rings and clearings drawn on each edited terrain
+     */
+    public static void main(String[] args) throws IOException {
+        File data = new File(args.length > 0 ? args[0] : "data");
+        int edits = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_EDITS;
+        if (edits < 0)
+            throw new IllegalArgumentException(String.format("Edit count of %d is negative.", edits));
+
+        File[] dirs = data.listFiles(File::isDirectory);
+        if (dirs == null)
+            throw new FileNotFoundException(String.format("No data directory \"%s\".", data));
+        Arrays.sort(dirs);
+        List<RunnerProfile> profiles = new ArrayList<>();
+        profiles.add(RunnerProfile.DEFAULT);
+        File profileFile = new File(data, "profiles.txt");
+        if (profileFile.exists()) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(profileFile))) {
+                profiles.addAll(RunnerProfile.readAll(reader));
+            }
+        }
+
+        List<String> mismatches = new ArrayList<>();
+        System.out.println("terrain         profile  index    components  differing  incremental ms   fresh ms");
+        for (File dir : dirs) {
+            File image = new File(dir, "terrain.png"), elevation = new File(dir, "mpp.txt");
+            if (!image.exists() || !elevation.exists())
+                continue;
+            Terrain terrain = new Terrain(ImageIO.read(image));
+            try (BufferedReader reader = new BufferedReader(new FileReader(elevation))) {
+                terrain.setElevationGrid(new ElevationGrid(reader, terrain.width, terrain.height));
+            }
+            List<Control> changed = new ArrayList<>();
+            Terrain edited = edit(ImageIO.read(image), terrain, edits, changed);
+
+            for (RunnerProfile profile : profiles) {
+                Predicate<PixelColor> passable = Connectivity.fasterThan(profile, 0.0);
+                Connectivity root = new Connectivity(terrain, passable);
+                for (Season season : Season.values()) {
+                    long begin = System.nanoTime();
+                    Connectivity incremental = root.forSeason(season);
+                    long incrementalNanos = System.nanoTime() - begin;
+                    compare(dir.getName(), profile.name, season.toString(), incremental,
+                            terrain.forSeason(season), passable, incrementalNanos, mismatches);
+                }
+                long begin = System.nanoTime();
+                Connectivity incremental = root.edited(edited, changed);
+                long incrementalNanos = System.nanoTime() - begin;
+                compare(dir.getName(), profile.name, "EDITED", incremental, edited, passable,
+                        incrementalNanos, mismatches);
+            }
+        }
+
+        if (!mismatches.isEmpty()) {
+            System.out.println("\nIndexes differ from a fresh build, first pixel of each:");
+            for (String mismatch : mismatches)
+                System.out.println("  " + mismatch);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * draws square rings of {@link PixelColor#ME}, which no runner can cross, and clearings of
+     * {@link PixelColor#OPEN_LAND} onto a copy of a terrain; a ring cuts its inside off into a component
+     * of its own and a clearing over a ring joins the two again
+     *
+     * @param image   the terrain's image, drawn on
+     * @param terrain the terrain
+     * @param edits   how many rings and clearings to draw
+     * @param changed given every pixel whose color the edits changed
+     * @return the edited terrain
+     */
+    private static Terrain edit(BufferedImage image, Terrain terrain, int edits, List<Control> changed) {
+        Random random = new Random(SEED);
+        Set<Control> touched = new LinkedHashSet<>();
+        for (int e = 0; e < edits; e++) {
+            int x = random.nextInt(terrain.width), y = random.nextInt(terrain.height);
+            int size = 3 + random.nextInt(EDIT_SIZE - 2);
+            boolean ring = e % 2 == 0;
+            for (int dy = 0; dy < size; dy++) {
+                for (int dx = 0; dx < size; dx++) {
+                    if (!ring)
+                        paint(image, terrain, x + dx, y + dy, PixelColor.OPEN_LAND, touched);
+                    else if (dx == 0 || dy == 0 || dx == size - 1 || dy == size - 1)
+                        paint(image, terrain, x + dx, y + dy, PixelColor.ME, touched);
+                }
+            }
+        }
+        Terrain edited = new Terrain(image);
+        for (Control c : touched) {
+            if (edited.getPixel(c.getX(), c.getY()) != terrain.getPixel(c.getX(), c.getY()))
+                changed.add(c);
+        }
+        return edited;
+    }
+
+    /**
+     * paints one pixel of an image, if it is on the terrain
+     */
+    private static void paint(BufferedImage image, Terrain terrain, int x, int y, PixelColor pc, Set<Control> touched) {
+        if (x < 0 || y < 0 || x >= terrain.width || y >= terrain.height)
+            return;
+        image.setRGB(x, y, pc.getRGBFill());
+        touched.add(new Control(x, y));
+    }
+
+    /**
+     * compares an index with one built from scratch and prints a row of the table
+     *
+     * @param terrainName name of the terrain
+     * @param profileName name of the runner profile
+     * @param indexName   which index is compared
+     * @param incremental the index built by flooding only what changed
+     * @param terrain     the terrain the index is of
+     * @param passable    which pixel colors can be crossed
+     * @param nanos       time taken to build the incremental index
+     * @param mismatches  given the first differing pixel
+     */
+    private static void compare(String terrainName, String profileName, String indexName, Connectivity incremental,
+                                Terrain terrain, Predicate<PixelColor> passable, long nanos, List<String> mismatches) {
+        long begin = System.nanoTime();
+        Connectivity fresh = new Connectivity(terrain, passable);
+        long freshNanos = System.nanoTime() - begin;
+
+        // labels of one index to the other's, both ways, so a component split or merged is caught
+        Map<Integer, Integer> toFresh = new HashMap<>(), toIncremental = new HashMap<>();
+        long differing = 0;
+        for (int y = 0; y < terrain.height; y++) {
+            for (int x = 0; x < terrain.width; x++) {
+                int a = incremental.getComponent(x, y), b = fresh.getComponent(x, y);
+                boolean same = (a == Connectivity.BLOCKED) == (b == Connectivity.BLOCKED);
+                if (same && a != Connectivity.BLOCKED)
+                    same = toFresh.computeIfAbsent(a, l -> b) == b && toIncremental.computeIfAbsent(b, l -> a) == a;
+                if (!same && differing++ == 0)
+                    mismatches.add(String.format("%s %s %s (%d,%d): component %d incrementally, %d fresh",
+                            terrainName, profileName, indexName, x, y, a, b));
+            }
+        }
+        if (incremental.getComponents() != fresh.getComponents() && differing == 0)
+            mismatches.add(String.format("%s %s %s: %d components incrementally, %d fresh", terrainName,
+                    profileName, indexName, incremental.getComponents(), fresh.getComponents()));
+        System.out.printf("%-15s %-8s %-8s %10d %10d %15d %10d%n", terrainName, profileName, indexName,
+                incremental.getComponents(), differing, nanos / 1_000_000, freshNanos / 1_000_000);
+    }
+}
@@ -0,0 +1,190 @@
+import util.DistanceFieldCache;
+import util.LegResult;
+import util.Orienteering;
+import util.PathList;
+import util.RunnerProfile;
+import util.SearchMode;
+import util.point.Control;
+import util.season.Season;
+import util.terrain.ElevationGrid;
+import util.terrain.Terrain;
+
+import javax.imageio.ImageIO;
+import java.io.*;
+import java.util.*;
+
+/**
+ * Routes the sample courses through a {@link DistanceFieldCache} and checks every leg against the exact
+ * searches. The courses of a directory are routed twice over with a cache that builds a goal's field the
+ * second time it is asked for and has room for only two fields, so legs are walked down a field, searched
+ * with a nearby field as the heuristic, and fields are dropped least recently used first. Every leg has
+ * to cost what {@link SearchMode#ADMISSIBLE} and {@link SearchMode#DIJKSTRA} find, and a walked path has
+ * to be a chain of neighboring pixels that costs what it says. Exits with status 1 if a leg is off, or if
+ * the walk, the field heuristic or the eviction was never used.
+ *
+ * @author Alex Wall
+ */
+public class FieldCacheHarness {
+
+    /**
+     * relative cost difference still counted as the same cost
+     */
+    private static final double TOLERANCE = 1e-9;
+
+    /**
+     * times the courses of a directory are routed through the same cache
+     */
+    private static final int ROUNDS = 2;
+
+    /**
+     * number of times a goal is asked for before its field is built
+     */
+    private static final int BUILD_AFTER = 2;
+
+    /**
+     * number of fields the cache has room for
+     */
+    private static final int ROOM = 2;
+
+    /**
+     * @param dir a data directory
+     * @return the path files of the directory, every text file but the elevations and readme
+     */
+    private static List<File> courses(File dir) {
+        List<File> courses = new ArrayList<>();
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".txt") && !name.equals("mpp.txt") && !name.equals("readme.txt"));
+        if (files != null) {
+            courses.addAll(Arrays.asList(files));
+            Collections.sort(courses);
+        }
+        return courses;
+    }
+
+    /**
+     * checks that a walked path steps from the start to the goal one neighbor at a time
+     *
+     * @param model the cost model
+     * @param leg   the walked leg
+     * @param start the starting point
+     * @param goal  the goal point
+     * @return null if the path is sound; otherwise, what is wrong with it
+     */
+    private static String checkWalk(Orienteering model, LegResult leg, Control start, Control goal) {
+        List<Control> path = new ArrayList<>();
+        PathList pixels = leg.getPath();
+        while (pixels.hasNext())
+            path.add(pixels.dequeue());
+        if (path.isEmpty() || !path.get(0).equals(start) || !path.get(path.size() - 1).equals(goal))
+            return "does not run from the start to the goal";
+        double cost = 0.0;
+        for (int i = 1; i < path.size(); i++) {
+            Control a = path.get(i - 1), b = path.get(i);
+            if (Math.max(Math.abs(a.getX() - b.getX()), Math.abs(a.getY() - b.getY())) != 1)
+                return String.format("jumps from %s to %s", a, b);
+            cost += model.cost(a, b);
+        }
+        if (Math.abs(cost - leg.getCost()) > TOLERANCE * cost)
+            return String.format("costs %f along its steps but says %f", cost, leg.getCost());
+        return null;
+    }
+
+    /**
+     * Runs the harness
+     *
+     * @param args 0: the data directory, "data" if not given
+     */
+    public static void main(String[] args) throws IOException {
+        File data = new File(args.length > 0 ? args[0] : "data");
+        File[] dirs = data.listFiles(File::isDirectory);
+        if (dirs == null)
+            throw new FileNotFoundException(String.format("No data directory \"%s\".", data));
+        Arrays.sort(dirs);
+
+        List<String> failures = new ArrayList<>();
+        int totalWalked = 0, totalNear = 0, totalEvicted = 0;
+        System.out.println("terrain         season    legs  walked  nearby   plain  cached  evicted   worst gap   cache ms   exact ms");
+        for (File dir : dirs) {
+            File image = new File(dir, "terrain.png"), elevation = new File(dir, "mpp.txt");
+            if (!image.exists() || !elevation.exists() || courses(dir).isEmpty())
+                continue;
+            Terrain terrain = new Terrain(ImageIO.read(image));
+            try (BufferedReader reader = new BufferedReader(new FileReader(elevation))) {
+                terrain.setElevationGrid(new ElevationGrid(reader, terrain.width, terrain.height));
+            }
+            Season season;
+            try {
+                season = Season.fromString(dir.getName());
+            } catch (IllegalArgumentException e) {
+                season = Season.SUMMER;
+            }
+            Terrain seasonal = terrain.forSeason(season);
+            Orienteering model = new Orienteering(seasonal, new PathList(), SearchMode.ADMISSIBLE);
+            DistanceFieldCache cache = new DistanceFieldCache(seasonal, RunnerProfile.DEFAULT,
+                    ROOM * 4L * terrain.width * terrain.height, BUILD_AFTER);
+
+            int legs = 0, walked = 0, near = 0, plain = 0;
+            double worstGap = 0.0;
+            long cacheNanos = 0, exactNanos = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                for (File courseFile : courses(dir)) {
+                    PathList course;
+                    try (BufferedReader reader = new BufferedReader(new FileReader(courseFile))) {
+                        course = new PathList(reader);
+                    }
+                    Control current = course.dequeue();
+                    while (course.hasNext()) {
+                        Control next = course.dequeue();
+                        legs++;
+                        long begin = System.nanoTime();
+                        LegResult admissible = new Orienteering(seasonal, new PathList(), SearchMode.ADMISSIBLE).search(current, next);
+                        LegResult dijkstra = new Orienteering(seasonal, new PathList(), SearchMode.DIJKSTRA).search(current, next);
+                        exactNanos += System.nanoTime() - begin;
+
+                        boolean anyCached = cache.cachedCount() > 0;
+                        begin = System.nanoTime();
+                        LegResult cached = cache.search(current, next);
+                        cacheNanos += System.nanoTime() - begin;
+
+                        String leg = String.format("%s %s %s %s->%s", dir.getName(), season, courseFile.getName(), current, next);
+                        if (Math.abs(admissible.getCost() - dijkstra.getCost()) > TOLERANCE * dijkstra.getCost())
+                            failures.add(String.format("%s: ADMISSIBLE %f, DIJKSTRA %f", leg, admissible.getCost(), dijkstra.getCost()));
+                        double gap = Math.abs(cached.getCost() - dijkstra.getCost()) / dijkstra.getCost();
+                        worstGap = Math.max(worstGap, gap);
+                        if (gap > TOLERANCE)
+                            failures.add(String.format("%s: cache %f, DIJKSTRA %f", leg, cached.getCost(), dijkstra.getCost()));
+                        if (cached.getExpanded() == 0) {
+                            walked++;
+                            String wrong = checkWalk(model, cached, current, next);
+                            if (wrong != null)
+                                failures.add(String.format("%s: the walked path %s", leg, wrong));
+                        } else if (anyCached) {
+                            near++;
+                        } else {
+                            plain++;
+                        }
+                        current = next;
+                    }
+                }
+            }
+            totalWalked += walked;
+            totalNear += near;
+            totalEvicted += cache.evictedCount();
+            System.out.printf("%-15s %-8s %5d %7d %7d %7d %7d %8d %10.2e %10d %10d%n", dir.getName(), season, legs,
+                    walked, near, plain, cache.cachedCount(), cache.evictedCount(), worstGap,
+                    cacheNanos / 1_000_000, exactNanos / 1_000_000);
+        }
+
+        if (totalWalked == 0)
+            failures.add("no leg was walked down a field");
+        if (totalNear == 0)
+            failures.add("no leg was searched with a nearby field as the heuristic");
+        if (totalEvicted == 0)
+            failures.add("no field was dropped");
+        if (!failures.isEmpty()) {
+            System.out.println("\nThe cache is off:");
+            for (String failure : failures)
+                System.out.println("  " + failure);
+            System.exit(1);
+        }
+    }
+}
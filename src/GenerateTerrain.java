@@ -0,0 +1,53 @@
+import util.terrain.TerrainGenerator;
+
+import java.io.File;
+
+/**
+ * Generates a synthetic terrain, elevation file and courses that can be fed straight into Lab1
+ *
+ * @author Alex Wall
+ */
+public class GenerateTerrain {
+
+    /**
+     * Reads command line arguments and writes terrain.png, mpp.txt and course#.txt into the output directory
+     *
+     * @param args 0: width of the terrain
+     *             1: height of the terrain
+     *             2: seed
+     *             3: number of controls per course
+     *             4: number of courses
+     *             5: output directory
+     */
+    public static void main(String[] args) {
+        if (args.length != 6) {
+            System.out.println("Usage: java GenerateTerrain.java width height seed controls courses output-directory");
+        } else {
+            try {
+                TerrainGenerator generator = new TerrainGenerator(
+                        Integer.parseInt(args[0]), Integer.parseInt(args[1]), Long.parseLong(args[2]));
+                File dir = new File(args[5]);
+                if (!dir.isDirectory() && !dir.mkdirs())
+                    throw new IllegalArgumentException(String.format("Cannot create directory \"%s\".", dir));
+
+                System.out.print("Generating the terrain image...");
+                long begin = System.nanoTime();
+                generator.writeTerrain(new File(dir, "terrain.png"));
+                System.out.printf("\t\tdone in %d ms.%n", (System.nanoTime() - begin) / 1_000_000);
+
+                System.out.print("Generating the elevation file...");
+                begin = System.nanoTime();
+                generator.writeElevation(new File(dir, "mpp.txt"));
+                System.out.printf("\t\tdone in %d ms.%n", (System.nanoTime() - begin) / 1_000_000);
+
+                System.out.print("Generating the courses...");
+                int courses = Integer.parseInt(args[4]);
+                for (int c = 1; c <= courses; c++)
+                    generator.writeCourse(new File(dir, "course" + c + ".txt"), Integer.parseInt(args[3]), c);
+                System.out.println("\t\t\tdone.");
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
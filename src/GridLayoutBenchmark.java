@@ -0,0 +1,222 @@
+import util.*;
+import util.point.Control;
+import util.season.Season;
+import util.terrain.ElevationGrid;
+import util.terrain.GridLayout;
+import util.terrain.Terrain;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares grid layouts on the longest leg of a course. For each layout the terrain and elevations are
+ * loaded in it, the leg is searched exactly and a distance field is built to its goal, and each is timed.
+ * The expansion order of the search is then replayed through a simulated two level cache: every
+ * expanded pixel reads itself and its eight neighbors from an array of 8 byte cells laid out in the
+ * layout, as the search arrays do; both miss rates are of all the reads. Exits with status 1 if the
+ * layouts find different costs.
+ *
+ * @author Alex Wall
+ */
+public class GridLayoutBenchmark {
+
+    /**
+     * bytes per cache line
+     */
+    private static final int LINE = 64;
+
+    /**
+     * bytes per cell of the replayed array, a double
+     */
+    private static final int CELL = 8;
+
+    /**
+     * untimed rounds over every layout first, so the first layout is not timed while still being compiled
+     */
+    private static final int WARM_UP = 1;
+
+    /**
+     * a set associative cache with least recently used eviction
+     */
+    private static class Cache {
+
+        private final long[][] tags;
+        private final long[][] used;
+        private final int sets;
+        private long clock;
+
+        long accesses, misses;
+
+        /**
+         * Constructor
+         *
+         * @param bytes size of the cache
+         * @param ways  lines per set
+         */
+        Cache(int bytes, int ways) {
+            this.sets = bytes / LINE / ways;
+            this.tags = new long[sets][ways];
+            this.used = new long[sets][ways];
+            for (long[] set : tags)
+                Arrays.fill(set, -1);
+        }
+
+        /**
+         * @param line the cache line being read
+         * @return true if the line was already in the cache; otherwise, false and the line is loaded
+         */
+        boolean access(long line) {
+            accesses++;
+            clock++;
+            int set = (int) (line % sets);
+            int victim = 0;
+            for (int way = 0; way < tags[set].length; way++) {
+                if (tags[set][way] == line) {
+                    used[set][way] = clock;
+                    return true;
+                }
+                if (used[set][way] < used[set][victim])
+                    victim = way;
+            }
+            misses++;
+            tags[set][victim] = line;
+            used[set][victim] = clock;
+            return false;
+        }
+
+        /**
+         * @param reads number of reads the rate is of, the reads of the first level for every level
+         * @return misses as a percentage of the reads
+         */
+        double missRate(long reads) {
+            return reads == 0 ? 0.0 : 100.0 * misses / reads;
+        }
+    }
+
+    /**
+     * Reads command line arguments and compares the layouts
+     *
+     * @param args 0: the terrain image with pixel colors
+     *             1: file where each pixel corresponds to an elevation
+     *             2: file of controls (x,y) in the terrain map
+     *             3: season: "summer", "fall", "winter", and "spring"
+     *             4..: layouts to compare, "row" and "tiled" if not given
+     */
+    public static void main(String[] args) {
+        if (args.length < 4) {
+            System.out.println("Usage: java GridLayoutBenchmark.java terrain-image elevation-file path-file <summer|fall|winter|spring> [row|tiled...]");
+        } else {
+            try {
+                BufferedImage image = ImageIO.read(new File(args[0]));
+                PathList path;
+                try (BufferedReader reader = new BufferedReader(new FileReader(args[2]))) {
+                    path = new PathList(reader);
+                }
+                List<String> names = new ArrayList<>(Arrays.asList(args).subList(4, args.length));
+                if (names.isEmpty())
+                    names.addAll(List.of("row", "tiled"));
+                Season season = Season.fromString(args[3]);
+
+                Control start = null, goal = null, current = path.dequeue();
+                long longest = -1;
+                while (path.hasNext()) {
+                    Control next = path.dequeue();
+                    long dx = next.getX() - current.getX(), dy = next.getY() - current.getY();
+                    if (dx * dx + dy * dy > longest) {
+                        longest = dx * dx + dy * dy;
+                        start = current;
+                        goal = next;
+                    }
+                    current = next;
+                }
+                if (start == null)
+                    throw new IllegalArgumentException(String.format("Course \"%s\" has no legs.", args[2]));
+
+                System.out.printf("leg %s->%s on a %dx%d terrain%n", start, goal, image.getWidth(), image.getHeight());
+                System.out.println("layout   load ms  search ms  expanded/s  field ms     cells/s  L1 miss %  L2 miss %          cost");
+                double firstCost = Double.NaN;
+                boolean drifted = false;
+                for (int round = 0; round <= WARM_UP; round++) {
+                    for (String name : names) {
+                        GridLayout layout = GridLayout.fromString(name, image.getWidth(), image.getHeight());
+                        long begin = System.nanoTime();
+                        Terrain terrain = new Terrain(image, false, layout);
+                        try (BufferedReader reader = new BufferedReader(new FileReader(args[1]))) {
+                            terrain.setElevationGrid(new ElevationGrid(reader, layout));
+                        }
+                        Terrain seasonal = terrain.forSeason(season);
+                        long load = System.nanoTime() - begin;
+
+                        Orienteering orienteering = new Orienteering(seasonal, new PathList(), SearchMode.DIJKSTRA);
+                        SearchTrace trace = new SearchTrace(seasonal);
+                        begin = System.nanoTime();
+                        LegResult result = orienteering.search(start, goal, trace);
+                        long search = System.nanoTime() - begin;
+
+                        begin = System.nanoTime();
+                        new DistanceField(orienteering, seasonal, goal);
+                        long field = System.nanoTime() - begin;
+
+                        Cache l1 = new Cache(32 * 1024, 8), l2 = new Cache(1024 * 1024, 8);
+                        replay(trace, layout, l1, l2);
+
+                        if (Double.isNaN(firstCost))
+                            firstCost = result.getCost();
+                        boolean same = result.getCost() == firstCost;
+                        drifted |= !same;
+                        if (round < WARM_UP)
+                            continue;
+                        System.out.printf("%-6s %9d %10d %11.0f %9d %11.0f %10.2f %10.2f %13.5f%s%n", name,
+                                load / 1_000_000, search / 1_000_000, result.getExpanded() * 1e9 / search,
+                                field / 1_000_000, (double) layout.width() * layout.height() * 1e9 / field,
+                                l1.missRate(l1.accesses), l2.missRate(l1.accesses), result.getCost(), same ? "" : "  DRIFT");
+                    }
+                }
+                if (drifted)
+                    System.exit(1);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * replays the pixels of a search in the order they were first expanded, reading each one and its
+     * neighbors through the first level cache and every first level miss through the second
+     *
+     * @param trace  the trace of the search
+     * @param layout where each pixel is in the replayed array
+     * @param l1     the first level cache
+     * @param l2     the second level cache
+     */
+    private static void replay(SearchTrace trace, GridLayout layout, Cache l1, Cache l2) {
+        int width = layout.width(), height = layout.height();
+        long[] expanded = new long[trace.getDistinct()];
+        int n = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int order = trace.getOrder(x, y);
+                if (order > 0)
+                    expanded[n++] = ((long) order << 32) | ((long) y << 16) | x;
+            }
+        }
+        Arrays.sort(expanded);
+        for (long e : expanded) {
+            int x = (int) (e & 0xFFFF), y = (int) ((e >> 16) & 0xFFFF);
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    int xx = x + dx, yy = y + dy;
+                    if (xx < 0 || yy < 0 || xx >= width || yy >= height)
+                        continue;
+                    long line = (long) layout.index(xx, yy) * CELL / LINE;
+                    if (!l1.access(line))
+                        l2.access(line);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+import util.Isochrone;
+import util.point.Control;
+import util.season.Season;
+import util.terrain.ElevationGrid;
+import util.terrain.Terrain;
+
+import javax.imageio.ImageIO;
+import java.io.*;
+
+/**
+ * Draws the isochrone (every pixel reachable within a time budget) from a single control
+ *
+ * @author Alex Wall
+ */
+public class IsochroneMap {
+
+    /**
+     * Reads command line arguments, floods the terrain, and outputs the isochrone
+     *
+     * @param args 0: the terrain image with pixel colors
+     *             1: file where each pixel corresponds to an elevation
+     *             2: season: "summer", "fall", "winter", and "spring"
+     *             3: x coordinate of the control
+     *             4: y coordinate of the control
+     *             5: time budget
+     *             6: time covered by each band
+     *             7: name of output file, a PNG overlay or, if it ends in .txt, the raw time grid
+     */
+    public static void main(String[] args) {
+        if (args.length != 8) {
+            System.out.println("Usage: java IsochroneMap.java terrain-image elevation-file <summer|fall|winter|spring> x y budget band output-image|output-grid.txt");
+        } else {
+            try {
+                System.out.print("Plotting the terrain image...");
+                Terrain terrain = new Terrain(ImageIO.read(new File(args[0])));
+                System.out.println("\t\tdone.");
+
+                System.out.print("Reading the elevation file...");
+                BufferedReader reader = new BufferedReader(new FileReader(args[1]));
+                terrain.setElevationGrid(new ElevationGrid(reader, terrain.width, terrain.height));
+                System.out.println("\t\tdone.");
+
+                System.out.print("Tis the season of...");
+                Season season = Season.fromString(args[2]);
+                Terrain seasonal = terrain.forSeason(season);
+                System.out.println("\t\t\t\t" + season + ".");
+
+                double band = Double.parseDouble(args[6]);
+                if (!(band > 0) || Double.isInfinite(band))
+                    throw new IllegalArgumentException(String.format("Band of %s is not a positive, finite time.", band));
+
+                System.out.print("Flooding the terrain...");
+                long begin = System.nanoTime();
+                Isochrone isochrone = new Isochrone(seasonal,
+                        new Control(Integer.parseInt(args[3]), Integer.parseInt(args[4])),
+                        Double.parseDouble(args[5]));
+                System.out.printf("\t\t\tdone in %d ms.%n", (System.nanoTime() - begin) / 1_000_000);
+
+                System.out.print("Printing the isochrone...");
+                if (args[7].endsWith(".txt")) {
+                    try (Writer writer = new BufferedWriter(new FileWriter(args[7]))) {
+                        isochrone.writeGrid(writer);
+                    }
+                } else {
+                    ImageIO.write(isochrone.toImage(band), "png", new File(args[7]));
+                }
+                System.out.println("\t\tdone.");
+
+                System.out.println(isochrone);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
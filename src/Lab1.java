@@ -1,13 +1,27 @@
 import util.point.State;
 import util.terrain.ElevationGrid;
+import util.Connectivity;
 import util.Orienteering;
 import util.PathList;
+import util.RunnerProfile;
+import util.WindowedOrienteering;
 import util.season.Season;
 import util.terrain.Terrain;
+import util.terrain.TerrainWindow;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.image.BufferedImage;
 import java.io.*;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 /**
  * The main class to run Lab1
@@ -16,6 +30,24 @@ import java.io.*;
  */
 public class Lab1 {
 
+    /**
+     * names of the stages, in the order their timings are printed
+     */
+    private static final String TERRAIN = "Plotting the terrain image...\t\t";
+    private static final String ELEVATION = "Reading the elevation file...\t\t";
+    private static final String PATH = "Building the path list...\t\t\t";
+    private static final String SEASON = "Tis the season of...\t\t\t\t";
+    private static final String COMPONENTS = "Finding the components...\t\t\t";
+    private static final String ROUTE = "Running the terrain...\t\t\t\t";
+    private static final String PRINT = "Printing the image...\t\t\t\t";
+
+    /**
+     * a loading stage that can throw an IOException
+     */
+    private interface Stage<T> {
+        T get() throws IOException;
+    }
+
     /**
      * Outputs the modified image into a PNG file
      *
@@ -27,60 +59,189 @@ public class Lab1 {
         ImageIO.write(img, "png", new File(outFileName));
     }
 
+    /**
+     * reads the width and height of an image without decoding it
+     *
+     * @param file the image file
+     * @return the width and height
+     * @throws IOException when the image cannot be read
+     */
+    private static int[] imageSize(File file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext())
+                throw new IOException(String.format("No image reader for \"%s\".", file));
+            ImageReader reader = readers.next();
+            reader.setInput(in);
+            int[] size = {reader.getWidth(0), reader.getHeight(0)};
+            reader.dispose();
+            return size;
+        }
+    }
+
+    /**
+     * wraps a stage so its running time is recorded under its name
+     *
+     * @param timings where to record the time
+     * @param name    the name of the stage
+     * @param stage   the stage
+     * @return the stage as a supplier for a CompletableFuture
+     */
+    private static <T> Supplier<T> timed(Map<String, Long> timings, String name, Stage<T> stage) {
+        return () -> {
+            long begin = System.nanoTime();
+            try {
+                return stage.get();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                synchronized (timings) {
+                    timings.put(name, (System.nanoTime() - begin) / 1_000_000);
+                }
+            }
+        };
+    }
+
+    /**
+     * Reads the path file first, then decodes and routes only the window of the terrain around its controls
+     *
+     * @param args the command line arguments of {@link #main}, with the window margin
+     */
+    private static void runWindowed(String[] args) {
+        long begin = System.nanoTime();
+        try {
+            Season season = Season.fromString(args[3]);
+            WindowedOrienteering orienteering = new WindowedOrienteering(
+                    new File(args[0]), new File(args[1]), season, Integer.parseInt(args[5]));
+
+            System.out.print(PATH);
+            long stage = System.nanoTime();
+            PathList path;
+            try (BufferedReader reader = new BufferedReader(new FileReader(args[2]))) {
+                path = new PathList(reader);
+            }
+            System.out.println("done in " + (System.nanoTime() - stage) / 1_000_000 + " ms.");
+
+            System.out.print(ROUTE);
+            stage = System.nanoTime();
+            State<PathList, Double> orientList = orienteering.start(path);
+            System.out.println("done in " + (System.nanoTime() - stage) / 1_000_000 + " ms.");
+
+            System.out.print(PRINT);
+            stage = System.nanoTime();
+            outImage(orienteering.getWindow().putPath(orientList.getData()), args[4]);
+            System.out.println("done in " + (System.nanoTime() - stage) / 1_000_000 + " ms.");
+
+            TerrainWindow window = orienteering.getWindow();
+            System.out.println("Season...\t\t\t\t\t" + season + ".");
+            if (season == Season.SPRING && !window.isFull())
+                System.out.println("Spring mud...\t\t\t\t\tspread step by step over the window, it can differ from the full terrain.");
+            System.out.printf("Window...\t\t\t\t\t%dx%d at (%d,%d) of %dx%d, grown %d times.%n", window.windowWidth(),
+                    window.windowHeight(), window.left, window.top, window.width, window.height, orienteering.getGrowths());
+            System.out.println("Total wall time...\t\t\t\t" + (System.nanoTime() - begin) / 1_000_000 + " ms.");
+            System.out.println("Minimum distance...\t\t\t\t" + orientList.getValue());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Reads command line arguments, starts the algorithm, and outputs the resulting image
+     * <p>
+     * The terrain image is decoded while the elevation file and path file are read, and the water edges
+     * are found as part of decoding; only the season and routing wait on their inputs. The components of
+     * the terrain are found while the elevations are read, so a leg between two components fails before
+     * it is searched. The legs of the course are routed at the same time.
      *
      * @param args 0: the terrain image with pixel colors
      *             1: file where each pixel corresponds to an elevation
      *             2: file of controls (x,y) in the terrain map
      *             3: season: "summer", "fall", "winter", and "spring"
      *             4: name of output image file
+     *             5: optional, pixels of margin around the controls; if given, only that window of the
+     *             terrain is decoded and the output image is of the window
      */
     public static void main(String[] args) {
-        if (args.length != 5) {
-            System.out.println("Usage: java Lab1.java terrain-image elevation-file path-file <summer|fall|winter|spring> output-image");
+        if (args.length != 5 && args.length != 6) {
+            System.out.println("Usage: java Lab1.java terrain-image elevation-file path-file <summer|fall|winter|spring> output-image [window-margin]");
+        } else if (args.length == 6) {
+            runWindowed(args);
         } else {
-            BufferedReader reader;
-            BufferedImage imageRead;
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+            Map<String, Long> timings = new LinkedHashMap<>();
+            for (String stage : new String[]{TERRAIN, ELEVATION, PATH, SEASON, COMPONENTS, ROUTE, PRINT})
+                timings.put(stage, 0L);
+            long begin = System.nanoTime();
             try {
+                Season season = Season.fromString(args[3]);
+                int[] size = imageSize(new File(args[0]));
+
                 // get the terrain image
-                System.out.print("Plotting the terrain image...");
-                imageRead = ImageIO.read(new File(args[0]));
-                Terrain terrain = new Terrain(imageRead);
-                System.out.println("\t\tdone.");
+                CompletableFuture<Terrain> terrainF = CompletableFuture.supplyAsync(timed(timings,
+                        TERRAIN, () -> new Terrain(ImageIO.read(new File(args[0])))), executor);
 
                 // get the elevations per pixel
-                System.out.print("Reading the elevation file...");
-                reader = new BufferedReader(new FileReader(args[1]));
-                terrain.setElevationGrid(new ElevationGrid(reader, terrain.width, terrain.height));
-                System.out.println("\t\tdone.");
+                CompletableFuture<ElevationGrid> elevationF = CompletableFuture.supplyAsync(timed(timings,
+                        ELEVATION, () -> {
+                            try (BufferedReader reader = new BufferedReader(new FileReader(args[1]))) {
+                                return new ElevationGrid(reader, size[0], size[1]);
+                            }
+                        }), executor);
 
                 // get the controls that an orienteer needs to visit
-                System.out.print("Building the path list...");
-                reader = new BufferedReader(new FileReader(args[2]));
-                PathList path = new PathList(reader);
-                System.out.println("\t\t\tdone.");
+                CompletableFuture<PathList> pathF = CompletableFuture.supplyAsync(timed(timings,
+                        PATH, () -> {
+                            try (BufferedReader reader = new BufferedReader(new FileReader(args[2]))) {
+                                return new PathList(reader);
+                            }
+                        }), executor);
 
-                // get the season
-                System.out.print("Tis the season of...");
-                Season season = Season.fromString(args[3]);
-                terrain.modifyBySeason(season);
-                System.out.println("\t\t\t\t" + season + ".");
+                // get the season, only spring needs the elevations to build
+                CompletableFuture<Terrain> withElevationF = terrainF.thenCombine(elevationF, (terrain, elevation) -> {
+                    terrain.setElevationGrid(elevation);
+                    return terrain;
+                });
+                CompletableFuture<Terrain> seasonF = (season == Season.SPRING ? withElevationF : terrainF)
+                        .thenApplyAsync(terrain -> timed(timings, SEASON,
+                                () -> terrain.forSeason(season)).get(), executor);
+
+                // get the components of the terrain, the season's are built from them once it is known
+                CompletableFuture<Connectivity> componentsF = terrainF.thenApplyAsync(terrain -> timed(timings,
+                        COMPONENTS, () -> new Connectivity(terrain,
+                                Connectivity.fasterThan(RunnerProfile.DEFAULT, 0.0))).get(), executor);
 
-                // run the algorithm
-                System.out.print("Running the terrain...");
-                State<PathList, Double> orientList = new Orienteering(terrain, path).start();
-                System.out.println("\t\t\t\tdone.");
+                // run the algorithm over the season's view, checking each leg against its components
+                CompletableFuture<State<PathList, Double>> orientF = seasonF
+                        .thenCombine(withElevationF, (seasonal, terrain) -> seasonal)
+                        .thenCombine(componentsF, (seasonal, components) -> components.forSeason(season))
+                        .thenCombine(pathF, (components, path) -> timed(timings, ROUTE, () -> {
+                            Orienteering orienteering = new Orienteering(components.getTerrain(), path);
+                            orienteering.setConnectivity(components);
+                            return orienteering.startConcurrently(executor);
+                        }).get());
 
                 // print the resulting image
-                System.out.print("Printing the image...");
-                outImage(terrain.putPath(orientList.getData()), args[4]);
-                System.out.println("\t\t\t\tdone.");
+                State<PathList, Double> orientList = orientF.join();
+                Terrain seasonal = seasonF.join();
+                timed(timings, PRINT, () -> {
+                    outImage(seasonal.putPath(orientList.getData()), args[4]);
+                    return null;
+                }).get();
 
+                synchronized (timings) {
+                    for (Map.Entry<String, Long> stage : timings.entrySet())
+                        System.out.println(stage.getKey() + "done in " + stage.getValue() + " ms.");
+                }
+                System.out.println("Season...\t\t\t\t\t" + season + ".");
+                System.out.println("Total wall time...\t\t\t\t" + (System.nanoTime() - begin) / 1_000_000 + " ms.");
                 System.out.println("Minimum distance...\t\t\t\t" + orientList.getValue());
 
+            } catch (CompletionException e) {
+                e.getCause().printStackTrace();
             } catch (Exception e) {
                 e.printStackTrace();
+            } finally {
+                executor.shutdown();
             }
         }
     }
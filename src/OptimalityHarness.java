@@ -0,0 +1,203 @@
+import util.LegResult;
+import util.Orienteering;
+import util.PathList;
+import util.SearchMode;
+import util.point.Control;
+import util.season.Season;
+import util.terrain.ElevationGrid;
+import util.terrain.Terrain;
+
+import javax.imageio.ImageIO;
+import java.io.*;
+import java.util.*;
+
+/**
+ * Runs every leg of the sample courses with a plain Dijkstra oracle and with every search mode, then
+ * reports how far each mode's cost is from the oracle, how many pixels it expanded and how long it took.
+ * Exits with status 1 if a mode that claims to be exact drifts from the oracle.
+ *
+ * @author Alex Wall
+ */
+public class OptimalityHarness {
+
+    /**
+     * relative cost difference still counted as the same cost
+     */
+    private static final double TOLERANCE = 1e-9;
+
+    /**
+     * totals for one search mode, or the oracle
+     */
+    private static class Totals {
+        int legs, optimal, expanded;
+        double worstGap, gapSum;
+        long nanos;
+
+        void add(double cost, double oracle, int expanded, long nanos) {
+            double gap = oracle > 0 ? (cost - oracle) / oracle : 0.0;
+            legs++;
+            if (Math.abs(gap) <= TOLERANCE)
+                optimal++;
+            worstGap = Math.max(worstGap, Math.abs(gap));
+            gapSum += Math.abs(gap);
+            this.expanded += expanded;
+            this.nanos += nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%5d %8d %11.4f%% %10.4f%% %12d %10d",
+                    legs, optimal, 100 * worstGap, legs == 0 ? 0.0 : 100 * gapSum / legs, expanded, nanos / 1_000_000);
+        }
+    }
+
+    /**
+     * the oracle: Dijkstra over the whole terrain with nothing but the cost model, stopping at the goal
+     *
+     * @param model   the cost model
+     * @param terrain the terrain being searched
+     * @param start   the starting point
+     * @param goal    the goal point
+     * @return the cost of the fastest path and the number of pixels expanded
+     */
+    private static double[] dijkstra(Orienteering model, Terrain terrain, Control start, Control goal) {
+        int width = terrain.width, height = terrain.height;
+        double[] dist = new double[width * height];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        int source = start.getY() * width + start.getX(), target = goal.getY() * width + goal.getX();
+        dist[source] = 0.0;
+        queue.add(new double[]{0.0, source});
+        int expanded = 0;
+        while (!queue.isEmpty()) {
+            double[] top = queue.poll();
+            int current = (int) top[1];
+            if (top[0] > dist[current])
+                continue;
+            expanded++;
+            if (current == target)
+                break;
+            int x = current % width, y = current / width;
+            Control from = new Control(x, y);
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    int xx = x + dx, yy = y + dy;
+                    if ((dx == 0 && dy == 0) || xx < 0 || yy < 0 || xx >= width || yy >= height)
+                        continue;
+                    double time = dist[current] + model.cost(from, new Control(xx, yy));
+                    if (time < dist[yy * width + xx]) {
+                        dist[yy * width + xx] = time;
+                        queue.add(new double[]{time, yy * width + xx});
+                    }
+                }
+            }
+        }
+        return new double[]{dist[target], expanded};
+    }
+
+    /**
+     * @param dir a data directory
+     * @return the path files of the directory, every text file but the elevations and readme
+     */
+    private static List<File> courses(File dir) {
+        List<File> courses = new ArrayList<>();
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".txt") && !name.equals("mpp.txt") && !name.equals("readme.txt"));
+        if (files != null) {
+            courses.addAll(Arrays.asList(files));
+            Collections.sort(courses);
+        }
+        return courses;
+    }
+
+    /**
+     * Runs the harness
+     *
+     * @param args 0: the data directory, "data" if not given
+     *             1..: seasons to run, or "all"; if not given, a directory named after a season runs in that
+     *             season and every other directory in summer
+     */
+    public static void main(String[] args) throws IOException {
+        File data = new File(args.length > 0 ? args[0] : "data");
+        List<Season> seasons = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equalsIgnoreCase("all"))
+                seasons.addAll(Arrays.asList(Season.values()));
+            else
+                seasons.add(Season.fromString(args[i]));
+        }
+
+        Map<SearchMode, Totals> totals = new EnumMap<>(SearchMode.class);
+        for (SearchMode mode : SearchMode.values())
+            totals.put(mode, new Totals());
+        Totals oracleTotals = new Totals();
+        List<String> drifts = new ArrayList<>();
+
+        File[] dirs = data.listFiles(File::isDirectory);
+        if (dirs == null)
+            throw new FileNotFoundException(String.format("No data directory \"%s\".", data));
+        Arrays.sort(dirs);
+        for (File dir : dirs) {
+            File image = new File(dir, "terrain.png"), elevation = new File(dir, "mpp.txt");
+            if (!image.exists() || !elevation.exists() || courses(dir).isEmpty())
+                continue;
+            Terrain terrain = new Terrain(ImageIO.read(image));
+            try (BufferedReader reader = new BufferedReader(new FileReader(elevation))) {
+                terrain.setElevationGrid(new ElevationGrid(reader, terrain.width, terrain.height));
+            }
+
+            List<Season> dirSeasons = seasons;
+            if (dirSeasons.isEmpty()) {
+                try {
+                    dirSeasons = Collections.singletonList(Season.fromString(dir.getName()));
+                } catch (IllegalArgumentException e) {
+                    dirSeasons = Collections.singletonList(Season.SUMMER);
+                }
+            }
+
+            for (Season season : dirSeasons) {
+                Terrain seasonal = terrain.forSeason(season);
+                Orienteering model = new Orienteering(seasonal, new PathList());
+                for (File course : courses(dir)) {
+                    PathList path;
+                    try (BufferedReader reader = new BufferedReader(new FileReader(course))) {
+                        path = new PathList(reader);
+                    }
+                    Control current = path.dequeue();
+                    int leg = 0;
+                    while (path.hasNext()) {
+                        Control next = path.dequeue();
+                        leg++;
+                        long begin = System.nanoTime();
+                        double[] best = dijkstra(model, seasonal, current, next);
+                        oracleTotals.add(best[0], best[0], (int) best[1], System.nanoTime() - begin);
+
+                        for (SearchMode mode : SearchMode.values()) {
+                            Orienteering orienteering = new Orienteering(seasonal, new PathList(), mode);
+                            begin = System.nanoTime();
+                            LegResult result = orienteering.search(current, next);
+                            long nanos = System.nanoTime() - begin;
+                            totals.get(mode).add(result.getCost(), best[0], result.getExpanded(), nanos);
+                            if (mode.exact && Math.abs(result.getCost() - best[0]) > TOLERANCE * best[0]) {
+                                drifts.add(String.format("%s %s %s leg %d %s->%s: cost %f, oracle %f",
+                                        mode, dir.getName(), season, leg, current, next, result.getCost(), best[0]));
+                            }
+                        }
+                        current = next;
+                    }
+                }
+            }
+        }
+
+        System.out.println("mode          legs  optimal   worst gap    mean gap     expanded    time ms");
+        System.out.println(String.format("%-12s", "oracle") + oracleTotals);
+        for (SearchMode mode : SearchMode.values())
+            System.out.println(String.format("%-12s", mode) + totals.get(mode));
+
+        if (!drifts.isEmpty()) {
+            System.out.println("\nExact modes drifted from the oracle:");
+            for (String drift : drifts)
+                System.out.println("  " + drift);
+            System.exit(1);
+        }
+    }
+}
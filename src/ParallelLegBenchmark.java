@@ -0,0 +1,97 @@
+import util.*;
+import util.point.Control;
+import util.season.Season;
+import util.terrain.ElevationGrid;
+import util.terrain.Terrain;
+
+import javax.imageio.ImageIO;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Times the longest leg of a course with the single threaded exact search and with the hash distributed
+ * search at several thread counts, and checks every parallel cost against the single threaded one.
+ * Exits with status 1 if a parallel search finds a different cost.
+ *
+ * @author Alex Wall
+ */
+public class ParallelLegBenchmark {
+
+    /**
+     * relative cost difference still counted as the same cost
+     */
+    private static final double TOLERANCE = 1e-9;
+
+    /**
+     * Reads command line arguments and times the longest leg
+     *
+     * @param args 0: the terrain image with pixel colors
+     *             1: file where each pixel corresponds to an elevation
+     *             2: file of controls (x,y) in the terrain map
+     *             3: season: "summer", "fall", "winter", and "spring"
+     *             4..: thread counts to time, 2 4 8 16 if not given
+     */
+    public static void main(String[] args) {
+        if (args.length < 4) {
+            System.out.println("Usage: java ParallelLegBenchmark.java terrain-image elevation-file path-file <summer|fall|winter|spring> [threads...]");
+        } else {
+            try {
+                Terrain terrain = new Terrain(ImageIO.read(new File(args[0])));
+                try (BufferedReader reader = new BufferedReader(new FileReader(args[1]))) {
+                    terrain.setElevationGrid(new ElevationGrid(reader, terrain.width, terrain.height));
+                }
+                PathList path;
+                try (BufferedReader reader = new BufferedReader(new FileReader(args[2]))) {
+                    path = new PathList(reader);
+                }
+                List<Integer> threadCounts = new ArrayList<>();
+                for (int i = 4; i < args.length; i++)
+                    threadCounts.add(Integer.parseInt(args[i]));
+                if (threadCounts.isEmpty())
+                    threadCounts.addAll(List.of(2, 4, 8, 16));
+                Terrain seasonal = terrain.forSeason(Season.fromString(args[3]));
+
+                Control start = null, goal = null, current = path.dequeue();
+                long longest = -1;
+                while (path.hasNext()) {
+                    Control next = path.dequeue();
+                    long dx = next.getX() - current.getX(), dy = next.getY() - current.getY();
+                    if (dx * dx + dy * dy > longest) {
+                        longest = dx * dx + dy * dy;
+                        start = current;
+                        goal = next;
+                    }
+                    current = next;
+                }
+                if (start == null)
+                    throw new IllegalArgumentException(String.format("Course \"%s\" has no legs.", args[2]));
+
+                Orienteering orienteering = new Orienteering(seasonal, new PathList(), SearchMode.ADMISSIBLE);
+                long begin = System.nanoTime();
+                LegResult sequential = orienteering.search(start, goal);
+                long baseline = System.nanoTime() - begin;
+                System.out.printf("leg %s->%s on %d processors%n", start, goal, Runtime.getRuntime().availableProcessors());
+                System.out.println("threads    time ms   speedup   expanded          cost");
+                System.out.printf("%-7s %10d %9.2f %10d %13.5f%n", "A*", baseline / 1_000_000, 1.0,
+                        sequential.getExpanded(), sequential.getCost());
+
+                boolean drifted = false;
+                for (int threads : threadCounts) {
+                    ParallelSearch search = new ParallelSearch(seasonal, RunnerProfile.DEFAULT, threads);
+                    begin = System.nanoTime();
+                    LegResult result = search.search(start, goal);
+                    long nanos = System.nanoTime() - begin;
+                    boolean same = Math.abs(result.getCost() - sequential.getCost()) <= TOLERANCE * sequential.getCost();
+                    drifted |= !same;
+                    System.out.printf("%-7d %10d %9.2f %10d %13.5f%s%n", threads, nanos / 1_000_000,
+                            (double) baseline / nanos, result.getExpanded(), result.getCost(), same ? "" : "  DRIFT");
+                }
+                if (drifted)
+                    System.exit(1);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+import util.PathList;
+import util.RunnerBatch;
+import util.RunnerProfile;
+import util.SearchMode;
+import util.point.State;
+import util.season.Season;
+import util.terrain.ElevationGrid;
+import util.terrain.Terrain;
+
+import javax.imageio.ImageIO;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Routes every runner profile in a profile file over one course, or over several courses that share
+ * controls, each leg found exactly and a goal that many legs share walked down its distance field
+ *
+ * @author Alex Wall
+ */
+public class RouteRunners {
+
+    /**
+     * Reads command line arguments, routes every profile and outputs one image per profile
+     *
+     * @param args 0: the terrain image with pixel colors
+     *             1: file where each pixel corresponds to an elevation
+     *             2: file of controls (x,y) in the terrain map, or several separated by commas
+     *             3: season: "summer", "fall", "winter", and "spring"
+     *             4: the runner profile file
+     *             5: prefix of the output images, each profile is written to prefix-name.png, or for
+     *             several courses to prefix-name-course.png
+     */
+    public static void main(String[] args) {
+        if (args.length != 6) {
+            System.out.println("Usage: java RouteRunners.java terrain-image elevation-file path-file[,path-file...] <summer|fall|winter|spring> profile-file output-prefix");
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+            try {
+                Terrain terrain = new Terrain(ImageIO.read(new File(args[0])));
+                try (BufferedReader reader = new BufferedReader(new FileReader(args[1]))) {
+                    terrain.setElevationGrid(new ElevationGrid(reader, terrain.width, terrain.height));
+                }
+                String[] courseFiles = args[2].split(",");
+                List<PathList> courses = new ArrayList<>();
+                for (String courseFile : courseFiles) {
+                    try (BufferedReader reader = new BufferedReader(new FileReader(courseFile))) {
+                        courses.add(new PathList(reader));
+                    }
+                }
+                List<RunnerProfile> profiles;
+                try (BufferedReader reader = new BufferedReader(new FileReader(args[4]))) {
+                    profiles = RunnerProfile.readAll(reader);
+                }
+                Terrain seasonal = terrain.forSeason(Season.fromString(args[3]));
+
+                if (courses.size() == 1) {
+                    Map<String, State<PathList, Double>> results =
+                            RunnerBatch.route(seasonal, courses.get(0), profiles, SearchMode.CLASSIC, executor);
+                    for (Map.Entry<String, State<PathList, Double>> result : results.entrySet()) {
+                        ImageIO.write(seasonal.putPath(result.getValue().getData()), "png",
+                                new File(args[5] + "-" + result.getKey() + ".png"));
+                        System.out.println(result.getKey() + "...\t\t\t\t" + result.getValue().getValue());
+                    }
+                } else {
+                    Map<String, List<State<PathList, Double>>> results = RunnerBatch.routeCourses(seasonal, courses,
+                            profiles, RunnerBatch.FIELD_BUDGET, RunnerBatch.BUILD_AFTER, executor);
+                    for (Map.Entry<String, List<State<PathList, Double>>> result : results.entrySet()) {
+                        for (int i = 0; i < courseFiles.length; i++) {
+                            String course = new File(courseFiles[i]).getName().replaceFirst("\\.txt$", "");
+                            State<PathList, Double> route = result.getValue().get(i);
+                            ImageIO.write(seasonal.putPath(route.getData()), "png",
+                                    new File(args[5] + "-" + result.getKey() + "-" + course + ".png"));
+                            System.out.println(result.getKey() + " " + course + "...\t\t\t" + route.getValue());
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+import util.LegResult;
+import util.Orienteering;
+import util.PathList;
+import util.SearchMode;
+import util.SearchTrace;
+import util.point.Control;
+import util.season.Season;
+import util.terrain.ElevationGrid;
+import util.terrain.Terrain;
+
+import javax.imageio.ImageIO;
+import java.io.*;
+
+/**
+ * Diagnostic run of a course: for every leg, draws a heatmap of the pixels the search expanded with
+ * the path on top, and writes a summary of expanded pixels against path length
+ *
+ * @author Alex Wall
+ */
+public class SearchHeatmap {
+
+    /**
+     * Reads command line arguments, searches every leg and outputs the heatmaps and summary
+     *
+     * @param args 0: the terrain image with pixel colors
+     *             1: file where each pixel corresponds to an elevation
+     *             2: file of controls (x,y) in the terrain map
+     *             3: season: "summer", "fall", "winter", and "spring"
+     *             4: search mode: "classic", "admissible", "dijkstra" or "any_angle"
+     *             5: prefix of the output files, each leg is written to prefix-leg#.png and the summary
+     *             to prefix-summary.txt
+     */
+    public static void main(String[] args) {
+        if (args.length != 6) {
+            System.out.println("Usage: java SearchHeatmap.java terrain-image elevation-file path-file <summer|fall|winter|spring> <classic|admissible|dijkstra|any_angle> output-prefix");
+        } else {
+            try {
+                Terrain terrain = new Terrain(ImageIO.read(new File(args[0])));
+                try (BufferedReader reader = new BufferedReader(new FileReader(args[1]))) {
+                    terrain.setElevationGrid(new ElevationGrid(reader, terrain.width, terrain.height));
+                }
+                PathList path;
+                try (BufferedReader reader = new BufferedReader(new FileReader(args[2]))) {
+                    path = new PathList(reader);
+                }
+                Terrain seasonal = terrain.forSeason(Season.fromString(args[3]));
+                Orienteering orienteering = new Orienteering(seasonal, new PathList(), SearchMode.fromString(args[4]));
+
+                try (PrintWriter summary = new PrintWriter(new FileWriter(args[5] + "-summary.txt"))) {
+                    Control current = path.dequeue();
+                    int leg = 0;
+                    while (path.hasNext()) {
+                        Control next = path.dequeue();
+                        leg++;
+                        SearchTrace trace = new SearchTrace(seasonal);
+                        LegResult result = orienteering.search(current, next, trace);
+                        String line = String.format("leg %d %s->%s %s", leg, current, next, trace.summary(result));
+                        System.out.println(line);
+                        summary.println(line);
+                        ImageIO.write(trace.toImage(Orienteering.pixelsOf(result.getPath())), "png", new File(args[5] + "-leg" + leg + ".png"));
+                        current = next;
+                    }
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+import util.season.Season;
+import util.terrain.ElevationGrid;
+import util.terrain.Terrain;
+import util.terrain.TerrainWindow;
+
+import javax.imageio.ImageIO;
+import java.awt.Rectangle;
+import java.io.*;
+import java.util.*;
+
+/**
+ * Checks that a window of a terrain has the same seasons as the full terrain. Every terrain of the data
+ * directory is cut into windows, each window is decoded on its own and every routable pixel of it is
+ * compared with the same pixel of the full terrain in every season; the full terrain spreads its spring
+ * mud step by step as the windows do. Exits with status 1 if any pixel differs.
+ *
+ * @author Alex Wall
+ */
+public class SeasonWindowHarness {
+
+    /**
+     * width and height of the windows when none is given
+     */
+    private static final int DEFAULT_SIZE = 100;
+
+    /**
+     * Runs the harness
+     *
+     * @param args 0: the data directory, "data" if not given
+     *             1: width and height of the windows
+     */
+    public static void main(String[] args) throws IOException {
+        File data = new File(args.length > 0 ? args[0] : "data");
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SIZE;
+        if (size < 1)
+            throw new IllegalArgumentException(String.format("Window size of %d is not positive.", size));
+
+        File[] dirs = data.listFiles(File::isDirectory);
+        if (dirs == null)
+            throw new FileNotFoundException(String.format("No data directory \"%s\".", data));
+        Arrays.sort(dirs);
+        List<String> mismatches = new ArrayList<>();
+        System.out.println("terrain         season   windows     pixels  differing");
+        for (File dir : dirs) {
+            File image = new File(dir, "terrain.png"), elevation = new File(dir, "mpp.txt");
+            if (!image.exists() || !elevation.exists())
+                continue;
+            Terrain terrain = new Terrain(ImageIO.read(image));
+            try (BufferedReader reader = new BufferedReader(new FileReader(elevation))) {
+                terrain.setElevationGrid(new ElevationGrid(reader, terrain.width, terrain.height));
+            }
+            // a window spreads its spring mud step by step, so it is compared with a full terrain that does
+            terrain.setStepwiseMud(true);
+
+            for (Season season : Season.values()) {
+                Terrain full = terrain.forSeason(season);
+                int windows = 0;
+                long pixels = 0, differing = 0;
+                // offset by half a window so most windows have no side on the edge of the terrain
+                for (int top = -size / 2; top < terrain.height; top += size) {
+                    for (int left = -size / 2; left < terrain.width; left += size) {
+                        TerrainWindow window = TerrainWindow.read(image, elevation, season,
+                                new Rectangle(left, top, size, size));
+                        windows++;
+                        for (int y = window.top; y <= window.bottom; y++) {
+                            for (int x = window.left; x <= window.right; x++) {
+                                pixels++;
+                                if (window.getPixel(x, y) != full.getPixel(x, y)) {
+                                    if (differing++ == 0)
+                                        mismatches.add(String.format("%s %s (%d,%d): %s in the window, %s on the full terrain",
+                                                dir.getName(), season, x, y, window.getPixel(x, y), full.getPixel(x, y)));
+                                }
+                            }
+                        }
+                    }
+                }
+                System.out.printf("%-15s %-8s %7d %10d %10d%n", dir.getName(), season, windows, pixels, differing);
+            }
+        }
+
+        if (!mismatches.isEmpty()) {
+            System.out.println("\nWindows differ from the full terrain, first pixel of each:");
+            for (String mismatch : mismatches)
+                System.out.println("  " + mismatch);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+import util.LegResult;
+import util.Orienteering;
+import util.PathList;
+import util.SearchMode;
+import util.point.Control;
+import util.point.State;
+import util.season.Season;
+import util.shard.ShardCoordinator;
+import util.shard.ShardTiming;
+import util.terrain.ElevationGrid;
+import util.terrain.Terrain;
+
+import javax.imageio.ImageIO;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Routes a course over a terrain split into bands, one {@link util.shard.ShardWorker} process per band,
+ * and prints how long each band spent loading and routing. Given "check", every leg is also searched
+ * over the whole terrain in {@link SearchMode#DIJKSTRA} mode and the sharded path has to cost the same.
+ *
+ * @author Alex Wall
+ */
+public class ShardedRoute {
+
+    /**
+     * relative cost difference still counted as the same cost
+     */
+    private static final double TOLERANCE = 1e-9;
+
+    /**
+     * @param model the cost model
+     * @param path  a path of neighboring pixels
+     * @return the time to run the path
+     */
+    private static double costOf(Orienteering model, PathList path) {
+        double cost = 0.0;
+        Control previous = null;
+        while (path.hasNext()) {
+            Control c = path.dequeue();
+            if (previous != null)
+                cost += model.cost(previous, c);
+            previous = c;
+        }
+        return cost;
+    }
+
+    /**
+     * Reads command line arguments, routes the course leg by leg across the bands, and outputs the
+     * timing of each band
+     *
+     * @param args 0: the terrain image with pixel colors
+     *             1: file where each pixel corresponds to an elevation
+     *             2: file of controls (x,y) in the terrain map
+     *             3: season: "summer", "fall", "winter", and "spring"
+     *             4: number of bands
+     *             5: optional, "check" to search every leg over the whole terrain as well
+     */
+    public static void main(String[] args) {
+        if ((args.length != 5 && args.length != 6) || (args.length == 6 && !args[5].equalsIgnoreCase("check"))) {
+            System.out.println("Usage: java ShardedRoute.java terrain-image elevation-file path-file <summer|fall|winter|spring> bands [check]");
+            return;
+        }
+        boolean failed = false;
+        try {
+            File image = new File(args[0]), elevation = new File(args[1]);
+            Season season = Season.fromString(args[3]);
+            int count = Integer.parseInt(args[4]);
+            List<Control> controls = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(new FileReader(args[2]))) {
+                PathList path = new PathList(reader);
+                while (path.hasNext())
+                    controls.add(path.dequeue());
+            }
+
+            Orienteering oracle = null;
+            if (args.length == 6) {
+                System.out.print("Loading the whole terrain...\t\t");
+                long begin = System.nanoTime();
+                Terrain terrain = new Terrain(ImageIO.read(image));
+                try (BufferedReader reader = new BufferedReader(new FileReader(elevation))) {
+                    terrain.setElevationGrid(new ElevationGrid(reader, terrain.width, terrain.height));
+                }
+                // more than one band spreads spring mud as a window does
+                terrain.setStepwiseMud(count > 1);
+                oracle = new Orienteering(terrain.forSeason(season), new PathList(), SearchMode.DIJKSTRA);
+                System.out.println("done in " + (System.nanoTime() - begin) / 1_000_000 + " ms.");
+            }
+
+            System.out.print("Starting the bands...\t\t\t\t");
+            long begin = System.nanoTime();
+            try (ShardCoordinator coordinator = new ShardCoordinator(image, elevation, season, count)) {
+                System.out.println("done in " + (System.nanoTime() - begin) / 1_000_000 + " ms.");
+
+                System.out.print("Running the terrain...\t\t\t\t");
+                begin = System.nanoTime();
+                double distance = 0.0;
+                List<String> checks = new ArrayList<>();
+                for (int i = 1; i < controls.size(); i++) {
+                    Control start = controls.get(i - 1), goal = controls.get(i);
+                    List<Control> leg = new ArrayList<>(List.of(start, goal));
+                    State<PathList, Double> sharded = coordinator.start(new PathList(leg));
+                    distance += sharded.getValue();
+                    if (oracle != null) {
+                        LegResult exact = oracle.search(start, goal);
+                        double cost = costOf(oracle, new PathList(sharded.getData()));
+                        boolean same = Math.abs(cost - exact.getCost()) <= TOLERANCE * exact.getCost();
+                        failed |= !same;
+                        checks.add(String.format("Leg %d %s->%s...\t\t\tsharded %.6f, DIJKSTRA %.6f%s", i, start, goal,
+                                cost, exact.getCost(), same ? "." : ", DIFFERENT."));
+                    }
+                }
+                System.out.println("done in " + (System.nanoTime() - begin) / 1_000_000 + " ms.");
+
+                for (ShardTiming timing : coordinator.getTimings())
+                    System.out.println(timing);
+                for (String check : checks)
+                    System.out.println(check);
+                System.out.println("Season...\t\t\t\t\t" + season + ".");
+                System.out.println("Minimum distance...\t\t\t\t" + distance);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            failed = true;
+        }
+        if (failed)
+            System.exit(1);
+    }
+}
@@ -0,0 +1,374 @@
+package util;
+
+import util.point.Control;
+import util.season.Season;
+import util.terrain.GridLayout;
+import util.terrain.PixelColor;
+import util.terrain.SeasonalTerrain;
+import util.terrain.Terrain;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Which pixels of a terrain an orienteer can get between: every passable pixel is labeled with its
+ * 8-connected component, so a leg between two components is known to have no path before any search.
+ * The labels are built with a union-find over all the rows in parallel.
+ * <p>
+ * An edit only changes the components of the pixels it touches, so the index of an edited terrain is
+ * built from this one by flooding out from the edited pixels alone; the index of each season is built
+ * that way from the index of its base terrain.
+ *
+ * @author Alex Wall (asw8675)
+ */
+public class Connectivity {
+
+    /**
+     * label of a pixel that is not passable
+     */
+    public static final int BLOCKED = -1;
+
+    private final Terrain terrain;
+
+    private final GridLayout layout;
+
+    private final Predicate<PixelColor> passable;
+
+    /**
+     * component per pixel, laid out as the terrain is; BLOCKED if the pixel is not passable
+     */
+    private final int[] label;
+
+    /**
+     * the label the next new component gets
+     */
+    private final int nextLabel;
+
+    private final int components;
+
+    /**
+     * the index of the base terrain, which the index of each season is built from
+     */
+    private final Connectivity root;
+
+    /**
+     * indexes of the seasons, only kept on the root
+     */
+    private final Map<Season, Connectivity> seasons;
+
+    /**
+     * Constructor, labels every pixel of a terrain
+     *
+     * @param terrain  the terrain, looked up over its full size
+     * @param passable which pixel colors can be crossed
+     */
+    public Connectivity(Terrain terrain, Predicate<PixelColor> passable) {
+        this.terrain = terrain;
+        this.layout = terrain.getLayout();
+        this.passable = passable;
+        this.root = this;
+        this.seasons = new ConcurrentHashMap<>();
+
+        int width = terrain.width, height = terrain.height;
+        boolean[] open = new boolean[layout.size()];
+        AtomicIntegerArray parent = new AtomicIntegerArray(layout.size());
+        IntStream.range(0, height).parallel().forEach(y -> {
+            for (int x = 0; x < width; x++) {
+                int i = layout.index(x, y);
+                open[i] = passable.test(terrain.getPixel(x, y));
+                parent.set(i, i);
+            }
+        });
+        // each pixel is joined to its neighbors east and below, which covers every edge once
+        IntStream.range(0, height).parallel().forEach(y -> {
+            for (int x = 0; x < width; x++) {
+                int i = layout.index(x, y);
+                if (!open[i])
+                    continue;
+                if (x + 1 < width && open[layout.index(x + 1, y)])
+                    union(parent, i, layout.index(x + 1, y));
+                if (y + 1 < height) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        int xx = x + dx;
+                        if (xx >= 0 && xx < width && open[layout.index(xx, y + 1)])
+                            union(parent, i, layout.index(xx, y + 1));
+                    }
+                }
+            }
+        });
+
+        this.label = new int[layout.size()];
+        Arrays.fill(label, BLOCKED);
+        int[] rootLabel = new int[layout.size()];
+        Arrays.fill(rootLabel, BLOCKED);
+        int count = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = layout.index(x, y);
+                if (!open[i])
+                    continue;
+                int r = find(parent, i);
+                if (rootLabel[r] == BLOCKED)
+                    rootLabel[r] = count++;
+                label[i] = rootLabel[r];
+            }
+        }
+        this.nextLabel = count;
+        this.components = count;
+    }
+
+    /**
+     * Constructor for the index of an edited terrain
+     */
+    private Connectivity(Connectivity root, Terrain terrain, int[] label, int nextLabel, int components) {
+        this.terrain = terrain;
+        this.layout = terrain.getLayout();
+        this.passable = root.passable;
+        this.root = root;
+        this.seasons = null;
+        this.label = label;
+        this.nextLabel = nextLabel;
+        this.components = components;
+    }
+
+    /**
+     * a pixel is passable if the runner is faster over it than the given speed; a minimum speed of 0
+     * blocks only the colors the runner cannot cross at all, the same pixels a search never gets past.
+     * Those colors are blocked at any minimum speed.
+     *
+     * @param profile  the runner
+     * @param minSpeed the speed a runner has to be faster than
+     * @return which pixel colors can be crossed
+     */
+    public static Predicate<PixelColor> fasterThan(RunnerProfile profile, double minSpeed) {
+        return pc -> profile.canCross(pc) && profile.speed(pc) > minSpeed;
+    }
+
+    /**
+     * root of a pixel, halving the path to it on the way
+     */
+    private static int find(AtomicIntegerArray parent, int i) {
+        while (true) {
+            int p = parent.get(i);
+            if (p == i)
+                return i;
+            int grand = parent.get(p);
+            if (p != grand)
+                parent.compareAndSet(i, p, grand);
+            i = grand;
+        }
+    }
+
+    /**
+     * joins the sets of two pixels; the root with the higher index is always put under the lower, so
+     * threads joining at the same time cannot make a cycle
+     */
+    private static void union(AtomicIntegerArray parent, int a, int b) {
+        while (true) {
+            a = find(parent, a);
+            b = find(parent, b);
+            if (a == b)
+                return;
+            if (a < b) {
+                int t = a;
+                a = b;
+                b = t;
+            }
+            if (parent.compareAndSet(a, a, b))
+                return;
+        }
+    }
+
+    /**
+     * the index of an edited copy of this terrain. Only edits that make a pixel passable or not matter:
+     * a pixel that becomes passable next to a single component joins it, and the components around a
+     * pixel that becomes blocked, or around a new pixel that joins several, are flooded again under new
+     * labels. The rest of the labels are kept.
+     *
+     * @param edited  the edited terrain, the same size as this one
+     * @param changed the pixels whose color differs from this terrain
+     * @return the index of the edited terrain
+     * @throws IllegalArgumentException if the edited terrain is a different size
+     */
+    public Connectivity edited(Terrain edited, Collection<Control> changed) {
+        if (edited.width != terrain.width || edited.height != terrain.height)
+            throw new IllegalArgumentException(String.format("Edited terrain of %dx%d is not %dx%d.",
+                    edited.width, edited.height, terrain.width, terrain.height));
+        int[] labels = label.clone();
+        int width = terrain.width, height = terrain.height;
+        int next = nextLabel, count = components;
+        // labels that no pixel has any more once the floods are done
+        Set<Integer> gone = new HashSet<>();
+        List<Control> seeds = new ArrayList<>();
+        for (Control c : changed) {
+            int i = layout.index(c.getX(), c.getY());
+            boolean open = passable.test(edited.getPixel(c.getX(), c.getY()));
+            if (open == (labels[i] != BLOCKED))
+                continue;
+            if (!open) {
+                gone.add(labels[i]);
+                labels[i] = BLOCKED;
+                seeds.add(c);
+                continue;
+            }
+            int joined = BLOCKED;
+            boolean several = false;
+            for (int y = c.getY() - 1; y <= c.getY() + 1; y++) {
+                for (int x = c.getX() - 1; x <= c.getX() + 1; x++) {
+                    if (x < 0 || y < 0 || x >= width || y >= height)
+                        continue;
+                    int l = labels[layout.index(x, y)];
+                    if (l != BLOCKED && joined != BLOCKED && l != joined)
+                        several = true;
+                    else if (l != BLOCKED)
+                        joined = l;
+                }
+            }
+            if (joined == BLOCKED) {
+                joined = next++;
+                count++;
+            }
+            labels[i] = joined;
+            if (several)
+                seeds.add(c);
+        }
+
+        int firstFlood = next;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (Control c : seeds) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    int x = c.getX() + dx, y = c.getY() + dy;
+                    if (x < 0 || y < 0 || x >= width || y >= height)
+                        continue;
+                    int seed = layout.index(x, y);
+                    if (labels[seed] == BLOCKED || labels[seed] >= firstFlood)
+                        continue;
+                    int fresh = next++;
+                    count++;
+                    gone.add(labels[seed]);
+                    labels[seed] = fresh;
+                    queue.add(seed);
+                    while (!queue.isEmpty()) {
+                        int i = queue.poll();
+                        int ix = layout.x(i), iy = layout.y(i);
+                        for (int ny = iy - 1; ny <= iy + 1; ny++) {
+                            for (int nx = ix - 1; nx <= ix + 1; nx++) {
+                                if (nx < 0 || ny < 0 || nx >= width || ny >= height)
+                                    continue;
+                                int j = layout.index(nx, ny);
+                                if (labels[j] == BLOCKED || labels[j] == fresh)
+                                    continue;
+                                gone.add(labels[j]);
+                                labels[j] = fresh;
+                                queue.add(j);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return new Connectivity(root, edited, labels, next, count - gone.size());
+    }
+
+    /**
+     * the index of a season of the terrain, built once from the index of the base terrain by flooding
+     * only the pixels the season changes, and cached. The index may have been built on a season view
+     * itself, so the pixels flooded are those that either view changes from the base terrain.
+     *
+     * @param season summer|fall|winter|spring
+     * @return the index of the season view of the terrain
+     */
+    public Connectivity forSeason(Season season) {
+        if (root != this)
+            return root.forSeason(season);
+        return seasons.computeIfAbsent(season, s -> {
+            Terrain view = terrain.forSeason(s);
+            if (view == terrain)
+                return this;
+            Set<Control> changed = new LinkedHashSet<>(changedPixels(terrain));
+            changed.addAll(changedPixels(view));
+            return edited(view, changed);
+        });
+    }
+
+    /**
+     * @param terrain a terrain or a season view of one
+     * @return the pixels the view changes from its base terrain, none for a terrain that is not a view
+     */
+    private static List<Control> changedPixels(Terrain terrain) {
+        return terrain instanceof SeasonalTerrain ? ((SeasonalTerrain) terrain).changedPixels() : List.of();
+    }
+
+    /**
+     * @return the terrain this index is of
+     */
+    public Terrain getTerrain() {
+        return terrain;
+    }
+
+    /**
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return true if the pixel can be crossed; otherwise, false
+     */
+    public boolean isPassable(int x, int y) {
+        return label[layout.index(x, y)] != BLOCKED;
+    }
+
+    /**
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the component of the pixel, BLOCKED if it is not passable
+     */
+    public int getComponent(int x, int y) {
+        return label[layout.index(x, y)];
+    }
+
+    /**
+     * @return the number of components
+     */
+    public int getComponents() {
+        return components;
+    }
+
+    /**
+     * @param a a pixel
+     * @param b another pixel
+     * @return true if there is a path between the pixels over passable pixels; otherwise, false
+     */
+    public boolean connected(Control a, Control b) {
+        int la = getComponent(a.getX(), a.getY());
+        return la != BLOCKED && la == getComponent(b.getX(), b.getY());
+    }
+
+    /**
+     * checks a leg before it is searched
+     *
+     * @param start the starting point
+     * @param goal  the goal point
+     * @throws IllegalArgumentException if either control is off the terrain or not passable, or they are
+     *                                  in different components
+     */
+    public void checkLeg(Control start, Control goal) {
+        for (Control c : List.of(start, goal)) {
+            if (c.getX() < 0 || c.getY() < 0 || c.getX() >= terrain.width || c.getY() >= terrain.height)
+                throw new IllegalArgumentException(String.format("Control %s is not on the %dx%d terrain.",
+                        c, terrain.width, terrain.height));
+            if (!isPassable(c.getX(), c.getY()))
+                throw new IllegalArgumentException(String.format("Control %s is on %s, which cannot be crossed.",
+                        c, terrain.getPixel(c.getX(), c.getY())));
+        }
+        if (!connected(start, goal))
+            throw new IllegalArgumentException(String.format("Control %s cannot be reached from %s: they are in components %d and %d.",
+                    goal, start, getComponent(goal.getX(), goal.getY()), getComponent(start.getX(), start.getY())));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Connectivity(%dx%d, components=%d)", terrain.width, terrain.height, components);
+    }
+}
@@ -0,0 +1,93 @@
+package util;
+
+import util.point.Control;
+import util.point.State;
+import util.terrain.GridLayout;
+import util.terrain.Terrain;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * The time from every pixel of a terrain to one goal, found with a single reverse Dijkstra rooted at the
+ * goal and kept as a float per pixel
+ *
+ * @author Alex Wall (asw8675)
+ */
+public class DistanceField {
+
+    public final Control goal;
+
+    /**
+     * layout of the field, the terrain's
+     */
+    private final GridLayout layout;
+
+    /**
+     * time to the goal per pixel, laid out as the terrain is
+     */
+    private final float[] field;
+
+    /**
+     * Constructor, runs the reverse Dijkstra
+     *
+     * @param model   the cost model, g(n) is followed backwards from the goal
+     * @param terrain the terrain of the cost model
+     * @param goal    the goal
+     */
+    public DistanceField(Orienteering model, Terrain terrain, Control goal) {
+        this.goal = goal;
+        this.layout = terrain.getLayout();
+        int width = terrain.width, height = terrain.height;
+        double[] dist = new double[layout.size()];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+
+        PriorityQueue<State<Integer, Double>> queue = new PriorityQueue<>(Comparator.comparingDouble(State::getValue));
+        int root = layout.index(goal.getX(), goal.getY());
+        dist[root] = 0.0;
+        queue.add(new State<>(root, 0.0));
+        while (!queue.isEmpty()) {
+            State<Integer, Double> top = queue.poll();
+            int current = top.getData();
+            if (top.getValue() > dist[current])
+                continue;
+            int x = layout.x(current), y = layout.y(current);
+            Control to = new Control(x, y);
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    int xx = x + dx, yy = y + dy;
+                    if ((dx == 0 && dy == 0) || xx < 0 || yy < 0 || xx >= width || yy >= height)
+                        continue;
+                    // the edge runs from the neighbor into the current pixel
+                    double time = dist[current] + model.cost(new Control(xx, yy), to);
+                    int next = layout.index(xx, yy);
+                    if (time < dist[next]) {
+                        dist[next] = time;
+                        queue.add(new State<>(next, time));
+                    }
+                }
+            }
+        }
+
+        this.field = new float[dist.length];
+        for (int i = 0; i < field.length; i++)
+            field[i] = (float) dist[i];
+    }
+
+    /**
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the time from the pixel to the goal
+     */
+    public double get(int x, int y) {
+        return field[layout.index(x, y)];
+    }
+
+    /**
+     * @return the number of bytes the field takes up
+     */
+    public long sizeInBytes() {
+        return 4L * field.length;
+    }
+}
@@ -0,0 +1,243 @@
+package util;
+
+import util.point.Control;
+import util.point.State;
+import util.terrain.Terrain;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Caches distance fields for goals that are asked for again and again, like a shared finish. A leg to a
+ * cached goal needs no search at all: the path walks down the field from the start. A leg to any other
+ * goal is an exact A* search that uses the nearest cached field as its heuristic; by the triangle
+ * inequality the time from a pixel to the cached goal, less the time from the new goal to the cached
+ * goal, never overestimates the time to the new goal.
+ * <p>
+ * Fields are dropped least recently used first once they take up more than the memory budget.
+ *
+ * @author Alex Wall (asw8675)
+ */
+public class DistanceFieldCache {
+
+    /**
+     * fields are floats, so the field heuristic is lowered by their relative rounding to never overestimate
+     */
+    private static final double FLOAT_SLACK = 1e-6;
+
+    private final Orienteering model;
+
+    private final Terrain terrain;
+
+    /**
+     * most bytes the cached fields can take up
+     */
+    private final long budget;
+
+    /**
+     * number of times a goal has to be asked for before its field is built
+     */
+    private final int buildAfter;
+
+    /**
+     * cached fields, in least recently used order
+     */
+    private final LinkedHashMap<Control, DistanceField> fields = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * number of times each goal has been asked for
+     */
+    private final HashMap<Control, Integer> requests = new HashMap<>();
+
+    /**
+     * fields being built, so a goal is only built once however many legs ask for it at the same time
+     */
+    private final HashMap<Control, CompletableFuture<DistanceField>> building = new HashMap<>();
+
+    private long size;
+
+    /**
+     * number of fields dropped to stay within the budget
+     */
+    private int evicted;
+
+    /**
+     * Constructor
+     *
+     * @param terrain    the terrain, already for the season to route in
+     * @param profile    the runner
+     * @param budget     most bytes the cached fields can take up
+     * @param buildAfter number of times a goal has to be asked for before its field is built
+     */
+    public DistanceFieldCache(Terrain terrain, RunnerProfile profile, long budget, int buildAfter) {
+        this.model = new Orienteering(terrain, new PathList(), SearchMode.ADMISSIBLE, profile);
+        this.terrain = terrain;
+        this.budget = budget;
+        this.buildAfter = buildAfter;
+    }
+
+    /**
+     * routes a leg, from the goal's field if it is cached or asked for often enough; otherwise with
+     * an A* search
+     *
+     * @param start the starting point
+     * @param goal  the goal point
+     * @return the path, its distance and cost; expanded is 0 when the path was walked down a field
+     */
+    public LegResult search(Control start, Control goal) {
+        DistanceField field = field(goal);
+        if (field != null) {
+            LegResult walked = walk(field, start);
+            if (walked != null)
+                return walked;
+        }
+        DistanceField near = nearest(goal);
+        double offset = near == null ? Double.POSITIVE_INFINITY : near.get(goal.getX(), goal.getY());
+        // a field whose goal cannot be reached from the new goal tells nothing about it
+        if (Double.isInfinite(offset))
+            return model.search(start, goal);
+        return model.search(start, goal, p -> {
+            double through = near.get(p.getX(), p.getY());
+            if (Double.isInfinite(through))
+                return model.heuristic(p, goal);
+            return Math.max(model.heuristic(p, goal), through - offset - FLOAT_SLACK * (through + offset));
+        });
+    }
+
+    /**
+     * takes a pair of sequence points from the path list and routes between them
+     *
+     * @param pathList the controls to visit, consumed by this method
+     * @return a full list of all the points that the orienteer travels and their total distance
+     * @throws IllegalArgumentException if a control cannot be reached from the one before it
+     */
+    public State<PathList, Double> start(PathList pathList) {
+        return Orienteering.route(pathList, this::search);
+    }
+
+    /**
+     * counts a request for a goal and gets its field, building it if it has been asked for often enough.
+     * The field is built outside the lock so other legs are not held up; a leg asking for a field that
+     * is being built waits for it.
+     *
+     * @return the field, or null if it is not cached
+     */
+    private DistanceField field(Control goal) {
+        CompletableFuture<DistanceField> pending;
+        boolean builder = false;
+        synchronized (this) {
+            DistanceField field = fields.get(goal);
+            if (field != null)
+                return field;
+            pending = building.get(goal);
+            if (pending == null) {
+                if (requests.merge(goal, 1, Integer::sum) < buildAfter)
+                    return null;
+                pending = new CompletableFuture<>();
+                building.put(goal, pending);
+                builder = true;
+            }
+        }
+        if (!builder)
+            return pending.join();
+
+        DistanceField field;
+        try {
+            field = new DistanceField(model, terrain, goal);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                building.remove(goal);
+            }
+            pending.completeExceptionally(e);
+            throw e;
+        }
+        synchronized (this) {
+            building.remove(goal);
+            if (field.sizeInBytes() <= budget) {
+                fields.put(goal, field);
+                size += field.sizeInBytes();
+                Iterator<DistanceField> eldest = fields.values().iterator();
+                while (size > budget) {
+                    size -= eldest.next().sizeInBytes();
+                    eldest.remove();
+                    evicted++;
+                }
+            }
+        }
+        pending.complete(field);
+        return field;
+    }
+
+    /**
+     * @return the cached field whose goal is closest to the given goal, or null if none is cached
+     */
+    private synchronized DistanceField nearest(Control goal) {
+        DistanceField nearest = null;
+        long best = Long.MAX_VALUE;
+        for (DistanceField field : fields.values()) {
+            long dx = field.goal.getX() - goal.getX(), dy = field.goal.getY() - goal.getY();
+            if (dx * dx + dy * dy < best) {
+                best = dx * dx + dy * dy;
+                nearest = field;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * walks down the field from the start, always to the neighbor that is the fastest to go through
+     *
+     * @return the path, or null if the walk got stuck on float rounding
+     */
+    private LegResult walk(DistanceField field, Control start) {
+        List<Control> path = new ArrayList<>();
+        Control current = start;
+        path.add(current);
+        double cost = 0.0;
+        while (!current.equals(field.goal)) {
+            Control next = null;
+            double nextCost = 0.0, best = Double.POSITIVE_INFINITY;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    int xx = current.getX() + dx, yy = current.getY() + dy;
+                    if ((dx == 0 && dy == 0) || xx < 0 || yy < 0 || xx >= terrain.width || yy >= terrain.height)
+                        continue;
+                    Control neighbor = new Control(xx, yy);
+                    double step = model.cost(current, neighbor);
+                    if (step + field.get(xx, yy) < best) {
+                        best = step + field.get(xx, yy);
+                        next = neighbor;
+                        nextCost = step;
+                    }
+                }
+            }
+            if (next == null || field.get(next.getX(), next.getY()) >= field.get(current.getX(), current.getY()))
+                return null;
+            cost += nextCost;
+            current = next;
+            path.add(current);
+        }
+        return new LegResult(new PathList(path), model.pathDistance(path), cost, 0);
+    }
+
+    /**
+     * @return the number of bytes the cached fields take up
+     */
+    public synchronized long sizeInBytes() {
+        return size;
+    }
+
+    /**
+     * @return the number of cached fields
+     */
+    public synchronized int cachedCount() {
+        return fields.size();
+    }
+
+    /**
+     * @return the number of fields dropped to stay within the budget
+     */
+    public synchronized int evictedCount() {
+        return evicted;
+    }
+}
@@ -0,0 +1,348 @@
+package util;
+
+import util.point.Control;
+import util.terrain.GridLayout;
+import util.terrain.Terrain;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Reachability map from one control: every pixel an orienteer can get to within a time budget, found
+ * with a single bounded flood over the same cost model as {@link Orienteering#cost}. The flood is a
+ * delta-stepping Dijkstra, the pixels of each bucket are relaxed in parallel.
+ *
+ * @author Alex Wall (asw8675)
+ */
+public class Isochrone {
+
+    /**
+     * bucket width used when none is given, about the cost of one step over easy terrain
+     */
+    public static final double DEFAULT_DELTA = 2.0;
+
+    /**
+     * rounds smaller than this are relaxed on the calling thread, splitting them costs more than it saves
+     */
+    private static final int PARALLEL_ROUND = 512;
+
+    /**
+     * color of the lines between two bands
+     */
+    private static final int CONTOUR_RGB = 0x202020;
+
+    private final Terrain terrain;
+
+    private final int width, height;
+
+    /**
+     * layout of the times, the terrain's
+     */
+    private final GridLayout layout;
+
+    /**
+     * time to reach each pixel, laid out as the terrain is, infinity if it cannot be reached within the budget
+     */
+    private final float[] times;
+
+    private final double budget;
+
+    /**
+     * the budget as a float, what the stored times are compared with; a time within the budget is still
+     * within it once both are rounded to floats
+     *
+     * @see #within
+     */
+    private final float reach;
+
+    /**
+     * Constructor, runs the flood
+     *
+     * @param terrain the terrain, already for the season to flood in
+     * @param source  the control to flood from
+     * @param budget  the most time an orienteer has
+     */
+    public Isochrone(Terrain terrain, Control source, double budget) {
+        this(terrain, source, budget, DEFAULT_DELTA);
+    }
+
+    /**
+     * Constructor, runs the flood
+     *
+     * @param terrain the terrain, already for the season to flood in
+     * @param source  the control to flood from
+     * @param budget  the most time an orienteer has
+     * @param delta   width of a delta-stepping bucket
+     * @throws IllegalArgumentException if the source is not on the terrain or delta is not positive
+     */
+    public Isochrone(Terrain terrain, Control source, double budget, double delta) {
+        if (source.getX() < 0 || source.getY() < 0 || source.getX() >= terrain.width || source.getY() >= terrain.height)
+            throw new IllegalArgumentException(String.format("Control %s is not on the terrain.", source));
+        if (!(delta > 0))
+            throw new IllegalArgumentException("Delta must be positive.");
+        this.terrain = terrain;
+        this.width = terrain.width;
+        this.height = terrain.height;
+        this.layout = terrain.getLayout();
+        this.budget = budget;
+        this.reach = (float) budget;
+        this.times = flood(source, delta);
+    }
+
+    /**
+     * the delta-stepping flood; a bucket is emptied in rounds where all of its pixels are relaxed in
+     * parallel, any pixel improved back into the same bucket goes into the next round. Buckets are only
+     * made once a pixel lands in them, so the budget can be as large as needed, and the flood ends when
+     * none is left.
+     *
+     * @param source the control to flood from
+     * @param delta  width of a bucket
+     * @return time to reach each pixel
+     */
+    private float[] flood(Control source, double delta) {
+        Orienteering model = new Orienteering(terrain, new PathList());
+        int cells = layout.size();
+        AtomicLongArray dist = new AtomicLongArray(cells);
+        long inf = Double.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+        for (int i = 0; i < cells; i++)
+            dist.set(i, inf);
+
+        // only the buckets that have pixels in them, by index
+        TreeMap<Integer, IntList> buckets = new TreeMap<>();
+        int start = layout.index(source.getX(), source.getY());
+        dist.set(start, Double.doubleToRawLongBits(0.0));
+        buckets.computeIfAbsent(0, b -> new IntList()).add(start);
+
+        BitSet inRound = new BitSet(cells);
+        IntList round = new IntList(), improved = new IntList();
+        while (!buckets.isEmpty()) {
+            Map.Entry<Integer, IntList> entry = buckets.pollFirstEntry();
+            int b = entry.getKey();
+            IntList bucket = entry.getValue();
+            while (bucket.size > 0) {
+                // take the live pixels of this bucket, skipping stale or duplicate entries
+                round.size = 0;
+                for (int k = 0; k < bucket.size; k++) {
+                    int i = bucket.data[k];
+                    if (!inRound.get(i) && bucketOf(Double.longBitsToDouble(dist.get(i)), delta) == b) {
+                        inRound.set(i);
+                        round.add(i);
+                    }
+                }
+                bucket.size = 0;
+                for (int k = 0; k < round.size; k++)
+                    inRound.clear(round.data[k]);
+
+                improved.size = 0;
+                if (round.size < PARALLEL_ROUND) {
+                    for (int k = 0; k < round.size; k++)
+                        relax(model, dist, round.data[k], improved);
+                } else {
+                    int[] found = IntStream.of(round.data).limit(round.size).parallel()
+                            .mapMulti((int i, IntConsumer out) -> relax(model, dist, i, out))
+                            .toArray();
+                    for (int i : found)
+                        improved.add(i);
+                }
+                for (int k = 0; k < improved.size; k++) {
+                    int i = improved.data[k];
+                    int to = bucketOf(Double.longBitsToDouble(dist.get(i)), delta);
+                    (to == b ? bucket : buckets.computeIfAbsent(to, t -> new IntList())).add(i);
+                }
+            }
+        }
+
+        float[] result = new float[cells];
+        for (int i = 0; i < cells; i++)
+            result[i] = (float) Double.longBitsToDouble(dist.get(i));
+        return result;
+    }
+
+    /**
+     * relaxes the octal neighbors of a pixel
+     *
+     * @param model the cost model
+     * @param dist  best known time per pixel, as double bits
+     * @param i     the pixel being relaxed
+     * @param out   given each neighbor whose time was improved and is within the budget
+     */
+    private void relax(Orienteering model, AtomicLongArray dist, int i, IntConsumer out) {
+        int x = layout.x(i), y = layout.y(i);
+        double base = Double.longBitsToDouble(dist.get(i));
+        Control current = new Control(x, y);
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                int xx = x + dx, yy = y + dy;
+                if ((dx == 0 && dy == 0) || xx < 0 || yy < 0 || xx >= width || yy >= height)
+                    continue;
+                double time = base + model.cost(current, new Control(xx, yy));
+                int next = layout.index(xx, yy);
+                if (time <= budget && lowerTo(dist, next, time))
+                    out.accept(next);
+            }
+        }
+    }
+
+    /**
+     * atomically lowers the time of a pixel
+     *
+     * @return true if the time was lowered; otherwise, false
+     */
+    private static boolean lowerTo(AtomicLongArray dist, int i, double time) {
+        long bits = Double.doubleToRawLongBits(time);
+        while (true) {
+            long old = dist.get(i);
+            if (Double.longBitsToDouble(old) <= time)
+                return false;
+            if (dist.compareAndSet(i, old, bits))
+                return true;
+        }
+    }
+
+    /**
+     * a growable list of pixels, unboxed
+     */
+    private static class IntList implements IntConsumer {
+
+        int[] data = new int[16];
+        int size;
+
+        void add(int i) {
+            if (size == data.length)
+                data = Arrays.copyOf(data, size * 2);
+            data[size++] = i;
+        }
+
+        @Override
+        public void accept(int i) {
+            add(i);
+        }
+    }
+
+    private static int bucketOf(double time, double delta) {
+        return (int) Math.floor(time / delta);
+    }
+
+    /**
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the time to reach the pixel, infinity if it cannot be reached within the budget
+     */
+    public double getTime(int x, int y) {
+        return times[layout.index(x, y)];
+    }
+
+    /**
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return true if the pixel can be reached within the budget; otherwise, false
+     */
+    public boolean isReachable(int x, int y) {
+        return within(times[layout.index(x, y)]);
+    }
+
+    /**
+     * @return the number of pixels that can be reached within the budget
+     */
+    public int reachableCount() {
+        int count = 0;
+        for (float t : times)
+            if (within(t))
+                count++;
+        return count;
+    }
+
+    /**
+     * @param t a stored time
+     * @return true if the time is within the budget; otherwise, false. An unbounded budget still leaves
+     * out the pixels the flood never reached
+     */
+    private boolean within(float t) {
+        return t <= reach && t != Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * band of a pixel, -1 if it cannot be reached
+     */
+    private int bandOf(int i, double band) {
+        return within(times[i]) ? (int) Math.min(times[i] / band, reach / band) : -1;
+    }
+
+    /**
+     * draws the reachable pixels over the terrain, each band of time is tinted from red (close) to
+     * blue (far) with a line drawn where one band meets the next
+     *
+     * @param band the time covered by each band
+     * @return the terrain image with the bands drawn over it
+     * @throws IllegalArgumentException if the band is not a positive, finite time
+     */
+    public BufferedImage toImage(double band) {
+        if (!(band > 0) || Double.isInfinite(band))
+            throw new IllegalArgumentException(String.format("Band of %s is not a positive, finite time.", band));
+        BufferedImage image = terrain.putPath(new PathList());
+        // an unbounded flood is tinted out to its furthest pixel
+        double furthest = 0.0;
+        for (float t : times)
+            if (within(t))
+                furthest = Math.max(furthest, t);
+        int bands = (int) (furthest / band) + 1;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = layout.index(x, y);
+                int b = bandOf(i, band);
+                if (b < 0)
+                    continue;
+                boolean contour = (x + 1 < width && bandOf(layout.index(x + 1, y), band) != b)
+                        || (y + 1 < height && bandOf(layout.index(x, y + 1), band) != b);
+                if (contour) {
+                    image.setRGB(x, y, CONTOUR_RGB | 0xFF000000);
+                } else {
+                    int red = 255 - 255 * b / Math.max(1, bands - 1);
+                    int tint = (red << 16) | (255 - red);
+                    image.setRGB(x, y, blend(image.getRGB(x, y), tint) | 0xFF000000);
+                }
+            }
+        }
+        return image;
+    }
+
+    /**
+     * mixes two colors half and half
+     */
+    private static int blend(int a, int b) {
+        return ((a & 0xFEFEFE) >> 1) + ((b & 0xFEFEFE) >> 1);
+    }
+
+    /**
+     * writes the raw times in the same layout as an elevation file, one row of the terrain per line;
+     * pixels that cannot be reached are written as -1
+     *
+     * @param writer where to write the grid
+     * @throws IOException when the grid cannot be written
+     */
+    public void writeGrid(Writer writer) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int y = 0; y < height; y++) {
+            sb.setLength(0);
+            for (int x = 0; x < width; x++) {
+                float t = times[layout.index(x, y)];
+                sb.append(String.format("%16.7e", within(t) ? t : -1.0));
+            }
+            writer.write(sb.append('\n').toString());
+        }
+        writer.flush();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Isochrone(budget=%.1f, reachable=%d of %d)", budget, reachableCount(), width * height);
+    }
+}
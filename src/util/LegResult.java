@@ -0,0 +1,67 @@
+package util;
+
+/**
+ * The outcome of searching one leg between two controls
+ *
+ * @author Alex Wall (asw8675)
+ */
+public class LegResult {
+
+    private final PathList path;
+    private final double distance;
+    private final double cost;
+    private final int expanded;
+
+    /**
+     * Constructor
+     *
+     * @param path     the controls from start to goal
+     * @param distance the distance of the path
+     * @param cost     the time the path takes, the sum of g(n) along it
+     * @param expanded the number of pixels taken off the open queue
+     */
+    public LegResult(PathList path, double distance, double cost, int expanded) {
+        this.path = path;
+        this.distance = distance;
+        this.cost = cost;
+        this.expanded = expanded;
+    }
+
+    /**
+     * the outcome of a search that ran out of pixels before reaching the goal
+     *
+     * @param expanded the number of pixels taken off the open queue
+     * @return an empty path with an infinite cost
+     */
+    public static LegResult unreachable(int expanded) {
+        return new LegResult(new PathList(), 0.0, Double.POSITIVE_INFINITY, expanded);
+    }
+
+    /**
+     * @return true if a path to the goal was found; otherwise, false
+     */
+    public boolean isReachable() {
+        return cost < Double.POSITIVE_INFINITY;
+    }
+
+    public PathList getPath() {
+        return path;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    public double getCost() {
+        return cost;
+    }
+
+    public int getExpanded() {
+        return expanded;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LegResult(distance=%f, cost=%f, expanded=%d)", distance, cost, expanded);
+    }
+}
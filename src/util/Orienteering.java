@@ -4,9 +4,15 @@ import util.point.Control;
 import util.point.Point;
 import util.point.State;
 import util.season.Season;
+import util.terrain.ElevationGrid;
+import util.terrain.PixelColor;
 import util.terrain.Terrain;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.ToDoubleFunction;
 
 /**
  * Class to perform the A* search and heuristics on finding the minimum distance
@@ -17,10 +23,16 @@ import java.util.*;
 public class Orienteering {
 
     /**
-     * Multipliers when travelling to different pixels in any of the octal directions
+     * Multipliers when travelling to different pixels in any of the octal directions, the size of a pixel
      */
-    private final double X_MULTIPLIER = 10.29;
-    private final double Y_MULTIPLIER = 7.55;
+    private static final double X_MULTIPLIER = ElevationGrid.PIXEL_WIDTH;
+    private static final double Y_MULTIPLIER = ElevationGrid.PIXEL_HEIGHT;
+
+    /**
+     * relative slack within which a straight run from the parent counts as no slower than the step from
+     * the current pixel, so rounding along a long line cannot add a turning point
+     */
+    private static final double TIE_EPSILON = 1e-9;
 
     /**
      * Information regarding the terrain that the orienteer is performing on
@@ -32,13 +44,68 @@ public class Orienteering {
      */
     private PathList pathList;
 
+    /**
+     * how each leg is searched
+     */
+    private final SearchMode mode;
+
+    /**
+     * speeds of the orienteer over each pixel color and how much climbing slows them down
+     */
+    private final RunnerProfile profile;
+
+    /**
+     * the components of the terrain, or null to search every leg without checking it first
+     */
+    private Connectivity connectivity;
+
+    /**
+     * the fastest speed of the runner over any pixel color on the terrain, worked out from the colors the
+     * terrain keeps on the first any-angle search; 0 until then
+     */
+    private volatile double terrainMaxSpeed;
 
     /**
      * Constructor
      */
     public Orienteering(Terrain terrain, PathList pathList) {
+        this(terrain, pathList, SearchMode.CLASSIC);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param mode how each leg is searched
+     */
+    public Orienteering(Terrain terrain, PathList pathList, SearchMode mode) {
+        this(terrain, pathList, mode, RunnerProfile.DEFAULT);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param mode    how each leg is searched
+     * @param profile speeds of the orienteer and how much climbing slows them down
+     */
+    public Orienteering(Terrain terrain, PathList pathList, SearchMode mode, RunnerProfile profile) {
         this.terrain = terrain;
         this.pathList = pathList;
+        this.mode = mode;
+        this.profile = profile;
+    }
+
+    /**
+     * sets the components of the terrain; from then on a leg between two components fails straight away
+     * instead of searching everything reachable from its start, and searches never cross a pixel the
+     * index does not count as passable
+     *
+     * @param connectivity the index of this orienteer's terrain, or null to stop checking legs
+     * @throws IllegalArgumentException if the index is of a different terrain, such as another season
+     */
+    public void setConnectivity(Connectivity connectivity) {
+        if (connectivity != null && connectivity.getTerrain() != terrain)
+            throw new IllegalArgumentException(String.format("%s is not of the terrain being searched.", connectivity));
+        this.connectivity = connectivity;
     }
 
 
@@ -47,21 +114,80 @@ public class Orienteering {
      * and perform A* search algorithm
      *
      * @return a full list of all the points that the orienteer travels and their total distance
+     * @throws IllegalArgumentException if a control cannot be reached from the one before it
      */
     public State<PathList, Double> start() {
+        return route(pathList, this::search);
+    }
+
+    /**
+     * takes a pair of sequence points from a path list at a time and routes between them with the given
+     * search, one leg after the other
+     *
+     * @param pathList the controls to visit, consumed by this method
+     * @param search   searches a single leg from its start to its goal
+     * @return a full list of all the points that the orienteer travels and their total distance
+     * @throws IllegalArgumentException if a control cannot be reached from the one before it
+     */
+    public static State<PathList, Double> route(PathList pathList, BiFunction<Control, Control, LegResult> search) {
         Control current = pathList.dequeue();
         PathList fullList = new PathList();
         double fullDistance = 0.0;
         while (pathList.hasNext()) {
             Control next = pathList.dequeue();
-            State<PathList, Double> subList = search(current, next);
-            fullList.enqueueAll(subList.getData());
-            fullDistance += subList.getValue();
+            LegResult subList = reachable(search.apply(current, next), current, next);
+            fullList.enqueueAll(subList.getPath());
+            fullDistance += subList.getDistance();
             current = next;
         }
         return new State<>(fullList, fullDistance);
     }
 
+    /**
+     * same as {@link #start()}, but every leg is searched at the same time on the given executor;
+     * the legs are joined back in course order
+     *
+     * @param executor where to run the leg searches
+     * @return a full list of all the points that the orienteer travels and their total distance
+     * @throws IllegalArgumentException if a control cannot be reached from the one before it
+     */
+    public State<PathList, Double> startConcurrently(Executor executor) {
+        List<CompletableFuture<LegResult>> legs = new ArrayList<>();
+        List<Control> controls = new ArrayList<>();
+        Control current = pathList.dequeue();
+        controls.add(current);
+        while (pathList.hasNext()) {
+            Control start = current, next = pathList.dequeue();
+            legs.add(CompletableFuture.supplyAsync(() -> search(start, next), executor));
+            controls.add(next);
+            current = next;
+        }
+        PathList fullList = new PathList();
+        double fullDistance = 0.0;
+        for (int i = 0; i < legs.size(); i++) {
+            LegResult subList = reachable(legs.get(i).join(), controls.get(i), controls.get(i + 1));
+            fullList.enqueueAll(subList.getPath());
+            fullDistance += subList.getDistance();
+        }
+        return new State<>(fullList, fullDistance);
+    }
+
+    /**
+     * checks that a leg of a course was found, so its distance can be added to the course's
+     *
+     * @param leg   the result of searching the leg
+     * @param start the starting point
+     * @param goal  the goal point
+     * @return the leg
+     * @throws IllegalArgumentException if the search ran out of pixels before reaching the goal
+     */
+    public static LegResult reachable(LegResult leg, Control start, Control goal) {
+        if (!leg.isReachable())
+            throw new IllegalArgumentException(String.format("Control %s cannot be reached from %s, %d pixels were searched.",
+                    goal, start, leg.getExpanded()));
+        return leg;
+    }
+
     /**
      * calculates the displacement of an orienteer from point s to f
      *
@@ -70,25 +196,210 @@ public class Orienteering {
      * @return the displacement between point s and f
      */
     public double displacement(Control s, Control f) {
-        double pEl = terrain.getElevation(s.getX(), s.getY()), gEl = terrain.getElevation(f.getX(), f.getY());
+        return displacement(s, f, terrain.getRise(s.getX(), s.getY(), f.getX(), f.getY()));
+    }
+
+    /**
+     * calculates the displacement of an orienteer from point s to f when the elevations are already known
+     *
+     * @param s   the starting point
+     * @param sEl elevation at the starting point
+     * @param f   the ending point
+     * @param fEl elevation at the ending point
+     * @return the displacement between point s and f
+     */
+    public static double displacement(Control s, double sEl, Control f, double fEl) {
+        return displacement(s, f, fEl - sEl);
+    }
+
+    /**
+     * calculates the displacement of an orienteer from point s to f when the rise between them is known
+     *
+     * @param s    the starting point
+     * @param f    the ending point
+     * @param rise elevation at the ending point less elevation at the starting point
+     * @return the displacement between point s and f
+     */
+    public static double displacement(Control s, Control f, double rise) {
         return Math.sqrt(
                 X_MULTIPLIER * Math.pow(s.getX() - f.getX(), 2)
                         + Y_MULTIPLIER * Math.pow(s.getY() - f.getY(), 2)
-                        + Math.pow(Math.abs(pEl - gEl), 2)
+                        + Math.pow(Math.abs(rise), 2)
         );
     }
 
     /**
-     * g(n) - the time it takes for an orienteer to go from one point to an adjacent point
+     * g(n) - the time it takes for an orienteer to go from one point to an adjacent point, plus the
+     * runner's climb penalty for any height gained; a runner with a slope penalty is slowed down by the
+     * precomputed slope of the destination point
      *
      * @param s the starting point
      * @param f the destination point
-     * @return the cost for an orienteer to go from s to f
+     * @return the cost for an orienteer to go from s to f, infinity if the runner cannot cross f
      */
     public double cost(Control s, Control f) {
-        double distance = displacement(s, f);
-        double speed = terrain.getPixel(f.getX(), f.getY()).speed;
-        return distance / speed;
+        PixelColor pc = terrain.getPixel(f.getX(), f.getY());
+        if (!profile.canCross(pc))
+            return Double.POSITIVE_INFINITY;
+        double rise = terrain.getRise(s.getX(), s.getY(), f.getX(), f.getY());
+        double distance = displacement(s, f, rise);
+        double speed = profile.speed(pc);
+        if (profile.slopePenalty > 0.0)
+            distance *= 1.0 + profile.slopePenalty * terrain.getSlope(f.getX(), f.getY());
+        return distance / speed + profile.climbPenalty * Math.max(0.0, rise);
+    }
+
+    /**
+     * one coordinate of a pixel of the straight line from a point, rounded to the nearest pixel
+     *
+     * @param from  the coordinate of the starting point
+     * @param delta how far the line goes along the coordinate
+     * @param k     the step the pixel is at
+     * @param steps number of steps of the whole line
+     * @return the coordinate of the pixel
+     */
+    private static int along(int from, int delta, int k, int steps) {
+        return from + Math.floorDiv(2 * k * delta + steps, 2 * steps);
+    }
+
+    /**
+     * the pixels of the straight line from one point to another, one step to an octal neighbor at a time
+     *
+     * @param s the starting point
+     * @param f the ending point
+     * @return the pixels after s up to and including f
+     */
+    private static List<Control> line(Control s, Control f) {
+        int dx = f.getX() - s.getX(), dy = f.getY() - s.getY();
+        int steps = Math.max(Math.abs(dx), Math.abs(dy));
+        List<Control> pixels = new ArrayList<>(steps);
+        for (int k = 1; k <= steps; k++) {
+            pixels.add(new Control(along(s.getX(), dx, k, steps), along(s.getY(), dy, k, steps)));
+        }
+        return pixels;
+    }
+
+    /**
+     * true if an orienteer can run straight from one point to another at one speed: every pixel of the
+     * line between them has the speed of the first, and is passable if the connectivity index is set
+     *
+     * @param s the starting point
+     * @param f the ending point
+     * @return true if the line is one uniform run; otherwise, false
+     */
+    public boolean lineOfSight(Control s, Control f) {
+        double speed = profile.speed(terrain.getPixel(s.getX(), s.getY()));
+        for (Control p : line(s, f)) {
+            if (profile.speed(terrain.getPixel(p.getX(), p.getY())) != speed
+                    || (connectivity != null && !connectivity.isPassable(p.getX(), p.getY())))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * the time to run straight from one point to another, the cost model integrated along the line: the
+     * line's length on the ground is shared evenly between its steps, and each step rises and is slowed
+     * down as a step between its pixels would be; between neighbors it is exactly {@link #cost}
+     *
+     * @param s the starting point
+     * @param f the ending point
+     * @return the cost for an orienteer to run straight from s to f
+     */
+    public double segmentCost(Control s, Control f) {
+        return straightCost(s, f, false);
+    }
+
+    /**
+     * {@link #segmentCost} in one walk of the line from its far end, which can stop as soon as the line
+     * is found not to be a uniform run
+     *
+     * @param s       the starting point
+     * @param f       the ending point
+     * @param uniform true to give up on any line that {@link #lineOfSight} would not allow
+     * @return the cost for an orienteer to run straight from s to f, infinity if the line was given up on
+     */
+    private double straightCost(Control s, Control f, boolean uniform) {
+        int dx = f.getX() - s.getX(), dy = f.getY() - s.getY();
+        int steps = Math.max(Math.abs(dx), Math.abs(dy));
+        double speed = uniform ? profile.speed(terrain.getPixel(s.getX(), s.getY())) : 0.0;
+        double ground = displacement(s, f, 0.0) / steps;
+        double time = 0.0;
+        int x = f.getX(), y = f.getY();
+        for (int k = steps; k >= 1; k--) {
+            double v = profile.speed(terrain.getPixel(x, y));
+            if (uniform && (v != speed || (connectivity != null && !connectivity.isPassable(x, y))))
+                return Double.POSITIVE_INFINITY;
+            if (!(v > 0.0))
+                return Double.POSITIVE_INFINITY;
+            if (steps == 1)
+                return cost(s, f);
+            int px = along(s.getX(), dx, k - 1, steps), py = along(s.getY(), dy, k - 1, steps);
+            double rise = terrain.getRise(px, py, x, y);
+            double distance = Math.sqrt(ground * ground + rise * rise);
+            if (profile.slopePenalty > 0.0)
+                distance *= 1.0 + profile.slopePenalty * terrain.getSlope(x, y);
+            time += distance / v + profile.climbPenalty * Math.max(0.0, rise);
+            x = px;
+            y = py;
+        }
+        return time;
+    }
+
+    /**
+     * the distance of a straight line from one point to another, following the ground along it
+     *
+     * @param s the starting point
+     * @param f the ending point
+     * @return the distance between point s and f along the line
+     */
+    public double segmentDistance(Control s, Control f) {
+        return segmentDistance(s, f, false);
+    }
+
+    /**
+     * {@link #segmentDistance}, optionally leaving out the line's last step as a searched leg leaves out
+     * the step onto its goal
+     *
+     * @param s        the starting point
+     * @param f        the ending point
+     * @param lastStep false to stop at the pixel before f
+     * @return the distance between point s and f along the line
+     */
+    private double segmentDistance(Control s, Control f, boolean lastStep) {
+        List<Control> pixels = line(s, f);
+        if (pixels.size() <= 1)
+            return lastStep ? displacement(s, f) : 0.0;
+        double ground = displacement(s, f, 0.0) / pixels.size();
+        double distance = 0.0;
+        Control from = s;
+        for (Control to : lastStep ? pixels : pixels.subList(0, pixels.size() - 1)) {
+            double rise = terrain.getRise(from.getX(), from.getY(), to.getX(), to.getY());
+            distance += Math.sqrt(ground * ground + rise * rise);
+            from = to;
+        }
+        return distance;
+    }
+
+    /**
+     * fills in the pixels between the turning points of an any-angle path, for drawing it; a path of
+     * neighboring pixels comes back as it was
+     *
+     * @param waypoints the turning points of a path, consumed by this method
+     * @return every pixel of the path
+     */
+    public static PathList pixelsOf(PathList waypoints) {
+        List<Control> pixels = new ArrayList<>();
+        Control previous = null;
+        while (waypoints.hasNext()) {
+            Control c = waypoints.dequeue();
+            if (previous == null)
+                pixels.add(c);
+            else
+                pixels.addAll(line(previous, c));
+            previous = c;
+        }
+        return new PathList(pixels);
     }
 
     /**
@@ -99,7 +410,59 @@ public class Orienteering {
      * @return the heuristic cost from the point to another
      */
     public double heuristic(Control p, Control goal) {
-        return displacement(p, goal) / terrain.getPixel(p.getX(), p.getY()).speed;
+        switch (mode) {
+            case ADMISSIBLE:
+                return displacement(p, goal) / profile.maxSpeed;
+            case ANY_ANGLE:
+                return displacement(p, goal) / terrainMaxSpeed();
+            case DIJKSTRA:
+                return 0.0;
+            default:
+                // only a start can be on a color the runner cannot cross
+                PixelColor pc = terrain.getPixel(p.getX(), p.getY());
+                return displacement(p, goal) / (profile.canCross(pc) ? profile.speed(pc) : profile.maxSpeed);
+        }
+    }
+
+    /**
+     * performs the search for one leg with this orienteer's search mode
+     *
+     * @param start the starting point
+     * @param goal  the goal point
+     * @return the path, its distance and cost, and how many pixels were expanded; an empty path with an
+     * infinite cost if the goal cannot be reached
+     * @throws IllegalArgumentException if the connectivity index is set and the goal is not in the
+     *                                  component of the start
+     */
+    public LegResult search(Control start, Control goal) {
+        return search(start, goal, (SearchTrace) null);
+    }
+
+    /**
+     * performs the search for one leg with this orienteer's search mode, recording every pixel taken
+     * off the open queue
+     *
+     * @param start the starting point
+     * @param goal  the goal point
+     * @param trace where to record the expanded pixels, or null to not record them
+     * @return the path, its distance and cost, and how many pixels were expanded
+     */
+    public LegResult search(Control start, Control goal, SearchTrace trace) {
+        if (mode == SearchMode.ANY_ANGLE)
+            return anyAngleSearch(start, goal, trace);
+        return mode.exact ? exactSearch(start, goal, trace, p -> heuristic(p, goal)) : classicSearch(start, goal, trace);
+    }
+
+    /**
+     * performs an exact A* search for one leg with a heuristic supplied by the caller
+     *
+     * @param start     the starting point
+     * @param goal      the goal point
+     * @param heuristic h(n) to the goal, must never overestimate or the path may not be the fastest
+     * @return the path, its distance and cost, and how many pixels were expanded
+     */
+    public LegResult search(Control start, Control goal, ToDoubleFunction<Control> heuristic) {
+        return exactSearch(start, goal, null, heuristic);
     }
 
     /**
@@ -107,8 +470,12 @@ public class Orienteering {
      *
      * @param start the starting point
      * @param goal  the goal point
+     * @param trace where to record the expanded pixels, or null
      */
-    private State<PathList, Double> search(Control start, Control goal) {
+    private LegResult classicSearch(Control start, Control goal, SearchTrace trace) {
+        if (connectivity != null)
+            connectivity.checkLeg(start, goal);
+        int expanded = 0;
         HashMap<Control, Control> cameFrom = new HashMap<>();
         HashMap<Control, Double> gScore = new HashMap<>();
         HashMap<Control, Double> fScore = new HashMap<>();
@@ -122,11 +489,17 @@ public class Orienteering {
 
         while (!openQueue.isEmpty()) {
             Control current = openQueue.poll();
+            expanded++;
+            if (trace != null) {
+                trace.expand(current);
+            }
             if (current.equals(goal)) {
-                return getListAndDistance(cameFrom, start, goal);
+                State<PathList, Double> path = getListAndDistance(cameFrom, start, goal);
+                return new LegResult(path.getData(), path.getValue(), gScore.get(goal), expanded);
             }
             for (Control neighbor : getSuccessors(current)) {
-                if (neighbor.getX() >= terrain.width || neighbor.getY() >= terrain.height || neighbor.getX() < 0 || neighbor.getY() < 0) {
+                if (neighbor.getX() >= terrain.width || neighbor.getY() >= terrain.height || neighbor.getX() < 0 || neighbor.getY() < 0
+                        || (connectivity != null && !connectivity.isPassable(neighbor.getX(), neighbor.getY()))) {
                     continue;
                 }
                 double temp = gScore.get(current) + cost(current, neighbor);
@@ -142,8 +515,166 @@ public class Orienteering {
             }
         }
 
-        return new State<>(new PathList(), 0.0);
+        return LegResult.unreachable(expanded);
+
+    }
+
+    /**
+     * performs the A* search algorithm with the open queue ordered by the exact f(n); a pixel whose
+     * score improves is queued again and the stale entry skipped when it comes off the queue
+     *
+     * @param start the starting point
+     * @param goal  the goal point
+     * @param trace where to record the expanded pixels, or null
+     * @param h     h(n) to the goal
+     */
+    private LegResult exactSearch(Control start, Control goal, SearchTrace trace, ToDoubleFunction<Control> h) {
+        if (connectivity != null)
+            connectivity.checkLeg(start, goal);
+        int expanded = 0;
+        HashMap<Control, Control> cameFrom = new HashMap<>();
+        HashMap<Control, Double> gScore = new HashMap<>();
+        HashSet<Control> closed = new HashSet<>();
+
+        PriorityQueue<State<Control, Double>> openQueue = new PriorityQueue<>(Comparator.comparingDouble(State::getValue));
+
+        openQueue.add(new State<>(start, h.applyAsDouble(start)));
+        gScore.put(start, 0.0);
+
+        while (!openQueue.isEmpty()) {
+            Control current = openQueue.poll().getData();
+            if (!closed.add(current)) {
+                continue;
+            }
+            expanded++;
+            if (trace != null) {
+                trace.expand(current);
+            }
+            if (current.equals(goal)) {
+                State<PathList, Double> path = getListAndDistance(cameFrom, start, goal);
+                return new LegResult(path.getData(), path.getValue(), gScore.get(goal), expanded);
+            }
+            for (Control neighbor : getSuccessors(current)) {
+                if (neighbor.getX() >= terrain.width || neighbor.getY() >= terrain.height || neighbor.getX() < 0 || neighbor.getY() < 0
+                        || closed.contains(neighbor) || (connectivity != null && !connectivity.isPassable(neighbor.getX(), neighbor.getY()))) {
+                    continue;
+                }
+                double temp = gScore.get(current) + cost(current, neighbor);
+
+                if (temp < gScore.getOrDefault(neighbor, Double.POSITIVE_INFINITY)) {
+                    cameFrom.put(neighbor, current);
+                    gScore.put(neighbor, temp);
+                    openQueue.add(new State<>(neighbor, temp + h.applyAsDouble(neighbor)));
+                }
+            }
+        }
+
+        return LegResult.unreachable(expanded);
+    }
 
+    /**
+     * the fastest speed of the runner over the colors that are on the terrain. An any-angle path is
+     * close to a straight line, so the gap between the runner's fastest speed and the speed of the
+     * ground it is actually on is most of what the heuristic misses. The terrain is only scanned for its
+     * colors once, however many orienteers search it.
+     *
+     * @return the fastest speed over any pixel of the terrain
+     */
+    private double terrainMaxSpeed() {
+        if (terrainMaxSpeed == 0.0) {
+            double max = 0.0;
+            for (PixelColor pc : terrain.getColors())
+                max = Math.max(max, profile.speed(pc));
+            terrainMaxSpeed = max > 0.0 ? max : profile.maxSpeed;
+        }
+        return terrainMaxSpeed;
+    }
+
+    /**
+     * performs the Theta* search: each neighbor is reached either from the current pixel or, if there is
+     * a uniform run to it from the current pixel's parent, straight from that parent, whichever is
+     * faster, the parent on a tie. Parents are turning points, so the path is only those. The straight
+     * runs are costed once per parent and pixel, and not at all when even the fastest run over flat
+     * ground could not improve the pixel. The distance leaves out the last step onto the goal, as
+     * {@link #getListAndDistance} does.
+     *
+     * @param start the starting point
+     * @param goal  the goal point
+     * @param trace where to record the expanded pixels, or null
+     * @return the turning points of the path from start to goal, the distance along every segment, its
+     * cost, and how many pixels were expanded
+     */
+    private LegResult anyAngleSearch(Control start, Control goal, SearchTrace trace) {
+        if (connectivity != null)
+            connectivity.checkLeg(start, goal);
+        int expanded = 0;
+        HashMap<Control, Control> cameFrom = new HashMap<>();
+        HashMap<Control, Double> gScore = new HashMap<>();
+        HashSet<Control> closed = new HashSet<>();
+        // cost of the straight run from a parent to a pixel, keyed by both pixels' indexes
+        HashMap<Long, Double> straightCosts = new HashMap<>();
+
+        PriorityQueue<State<Control, Double>> openQueue = new PriorityQueue<>(Comparator.comparingDouble(State::getValue));
+
+        openQueue.add(new State<>(start, heuristic(start, goal)));
+        gScore.put(start, 0.0);
+
+        while (!openQueue.isEmpty()) {
+            Control current = openQueue.poll().getData();
+            if (!closed.add(current)) {
+                continue;
+            }
+            expanded++;
+            if (trace != null) {
+                trace.expand(current);
+            }
+            if (current.equals(goal)) {
+                LinkedList<Control> waypoints = new LinkedList<>();
+                double distance = 0.0;
+                for (Control c = goal; c != null; c = cameFrom.get(c)) {
+                    if (!waypoints.isEmpty())
+                        distance += segmentDistance(c, waypoints.getFirst(), waypoints.size() > 1);
+                    waypoints.addFirst(c);
+                }
+                return new LegResult(new PathList(waypoints), distance, gScore.get(goal), expanded);
+            }
+            Control parent = cameFrom.get(current);
+            for (Control neighbor : getSuccessors(current)) {
+                if (neighbor.getX() >= terrain.width || neighbor.getY() >= terrain.height || neighbor.getX() < 0 || neighbor.getY() < 0
+                        || closed.contains(neighbor) || (connectivity != null && !connectivity.isPassable(neighbor.getX(), neighbor.getY()))) {
+                    continue;
+                }
+                Control from = current;
+                double temp = gScore.get(current) + cost(current, neighbor);
+                double best = gScore.getOrDefault(neighbor, Double.POSITIVE_INFINITY);
+                if (parent != null) {
+                    double tie = temp + TIE_EPSILON * temp;
+                    double fastest = gScore.get(parent) + displacement(parent, neighbor, 0.0) / terrainMaxSpeed();
+                    if (fastest <= tie && fastest < best) {
+                        long key = (long) (parent.getY() * terrain.width + parent.getX()) * terrain.width * terrain.height
+                                + neighbor.getY() * terrain.width + neighbor.getX();
+                        Double run = straightCosts.get(key);
+                        if (run == null) {
+                            run = straightCost(parent, neighbor, true);
+                            straightCosts.put(key, run);
+                        }
+                        double straight = gScore.get(parent) + run;
+                        if (straight <= tie) {
+                            from = parent;
+                            temp = straight;
+                        }
+                    }
+                }
+
+                if (temp < best) {
+                    cameFrom.put(neighbor, from);
+                    gScore.put(neighbor, temp);
+                    openQueue.add(new State<>(neighbor, temp + heuristic(neighbor, goal)));
+                }
+            }
+        }
+
+        return LegResult.unreachable(expanded);
     }
 
     /**
@@ -169,6 +700,22 @@ public class Orienteering {
         return new State<>(new PathList(path), distance);
     }
 
+    /**
+     * the distance of a path measured the same way as a searched leg, from the goal's predecessor
+     * back to the start
+     *
+     * @param path the controls from start to goal
+     * @return the distance of the path
+     */
+    public double pathDistance(List<Control> path) {
+        double distance = 0.0;
+        for (int i = path.size() - 2; i > 0; i--) {
+            distance += displacement(path.get(i), path.get(i - 1));
+        }
+        return distance;
+    }
+
+
     /**
      * The helper method you love and know throughout this whole project
      *
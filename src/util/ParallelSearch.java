@@ -0,0 +1,336 @@
+package util;
+
+import util.point.Control;
+import util.terrain.GridLayout;
+import util.terrain.Terrain;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hash distributed A* (HDA*) for a single leg that is too long for one thread. Every pixel is owned by
+ * one worker thread, picked by a hash of the block of pixels it is in, and only its owner ever queues,
+ * scores or expands it. A worker that finds a faster way into a pixel owned by another worker sends it
+ * the relaxation, batched up with others for the same worker, through a lock-free queue.
+ * <p>
+ * The first time the goal is reached sets the incumbent cost; queued pixels whose f(n) is no better are
+ * dropped. The search is over once every worker is idle and no batch is in flight, at which point the
+ * incumbent is the fastest path since the heuristic never overestimates.
+ *
+ * @author Alex Wall (asw8675)
+ */
+public class ParallelSearch {
+
+    /**
+     * relaxations sent to another worker at a time
+     */
+    private static final int BATCH = 64;
+
+    /**
+     * side of the square blocks of pixels hashed to the same worker, so most relaxations stay local
+     */
+    private static final int BLOCK = 8;
+
+    /**
+     * pixels expanded between sending out partly filled batches, so other workers are never starved
+     */
+    private static final int FLUSH_EVERY = 256;
+
+    private final Orienteering model;
+
+    private final Terrain terrain;
+
+    /**
+     * numbers the cells of the terrain, the terrain's layout
+     */
+    private final GridLayout layout;
+
+    private final int threads;
+
+    /**
+     * Constructor
+     *
+     * @param terrain the terrain, already for the season to route in
+     * @param profile the runner
+     * @param threads number of worker threads for each leg
+     * @throws IllegalArgumentException if there is not at least one thread
+     */
+    public ParallelSearch(Terrain terrain, RunnerProfile profile, int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException(String.format("Cannot search with %d threads.", threads));
+        this.model = new Orienteering(terrain, new PathList(), SearchMode.ADMISSIBLE, profile);
+        this.terrain = terrain;
+        this.layout = terrain.getLayout();
+        this.threads = threads;
+    }
+
+    /**
+     * a faster way into a pixel, sent to the pixel's owner
+     */
+    private static class Relaxation {
+        final int cell, parent;
+        final double g;
+
+        Relaxation(int cell, int parent, double g) {
+            this.cell = cell;
+            this.parent = parent;
+            this.g = g;
+        }
+    }
+
+    /**
+     * the best known way into a pixel
+     */
+    private static class Entry {
+        double g;
+        int parent;
+
+        Entry(double g, int parent) {
+            this.g = g;
+            this.parent = parent;
+        }
+    }
+
+    /**
+     * state shared by the workers of one leg
+     */
+    private class Leg {
+        final Control goal;
+        final int goalCell;
+        final Worker[] workers = new Worker[threads];
+
+        /**
+         * busy workers plus batches in flight; it only reaches zero once there is nothing left to do
+         */
+        final AtomicLong work = new AtomicLong(threads);
+
+        /**
+         * raw bits of the cost of the fastest path found so far, positive doubles order like their bits
+         */
+        final AtomicLong incumbent = new AtomicLong(Double.doubleToRawLongBits(Double.POSITIVE_INFINITY));
+
+        Leg(Control goal) {
+            this.goal = goal;
+            this.goalCell = layout.index(goal.getX(), goal.getY());
+        }
+
+        double incumbent() {
+            return Double.longBitsToDouble(incumbent.get());
+        }
+
+        void lowerIncumbent(double cost) {
+            long bits = Double.doubleToRawLongBits(cost);
+            long current;
+            while (bits < (current = incumbent.get()))
+                if (incumbent.compareAndSet(current, bits))
+                    return;
+        }
+    }
+
+    /**
+     * one worker thread and the pixels it owns
+     */
+    private class Worker implements Runnable {
+        final Leg leg;
+        final int id;
+        final ConcurrentLinkedQueue<List<Relaxation>> inbox = new ConcurrentLinkedQueue<>();
+        final HashMap<Integer, Entry> best = new HashMap<>();
+        final PriorityQueue<double[]> open = new PriorityQueue<>(Comparator.comparingDouble(o -> o[0]));
+        final List<List<Relaxation>> outgoing = new ArrayList<>();
+        int expanded;
+
+        Worker(Leg leg, int id) {
+            this.leg = leg;
+            this.id = id;
+            for (int i = 0; i < threads; i++)
+                outgoing.add(new ArrayList<>(BATCH));
+        }
+
+        /**
+         * takes a way into an owned pixel if it is faster than the best known one
+         */
+        void relax(int cell, int parent, double g) {
+            Entry entry = best.get(cell);
+            if (entry != null && g >= entry.g)
+                return;
+            if (entry == null)
+                best.put(cell, new Entry(g, parent));
+            else {
+                entry.g = g;
+                entry.parent = parent;
+            }
+            if (cell == leg.goalCell) {
+                leg.lowerIncumbent(g);
+                return;
+            }
+            double f = g + model.heuristic(control(cell), leg.goal);
+            if (f < leg.incumbent())
+                open.add(new double[]{f, g, cell});
+        }
+
+        void send(int owner, Relaxation relaxation) {
+            List<Relaxation> batch = outgoing.get(owner);
+            batch.add(relaxation);
+            if (batch.size() == BATCH)
+                flush(owner);
+        }
+
+        void flush(int owner) {
+            List<Relaxation> batch = outgoing.get(owner);
+            if (batch.isEmpty())
+                return;
+            leg.work.incrementAndGet();
+            leg.workers[owner].inbox.add(batch);
+            outgoing.set(owner, new ArrayList<>(BATCH));
+        }
+
+        void flushAll() {
+            for (int i = 0; i < threads; i++)
+                flush(i);
+        }
+
+        /**
+         * relaxes every batch waiting in the inbox
+         *
+         * @return true if there were any
+         */
+        boolean drain() {
+            boolean any = false;
+            List<Relaxation> batch;
+            while ((batch = inbox.poll()) != null) {
+                for (Relaxation r : batch)
+                    relax(r.cell, r.parent, r.g);
+                leg.work.decrementAndGet();
+                any = true;
+            }
+            return any;
+        }
+
+        void expand(int cell, double g) {
+            expanded++;
+            int width = terrain.width, height = terrain.height;
+            int x = layout.x(cell), y = layout.y(cell);
+            Control from = new Control(x, y);
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    int xx = x + dx, yy = y + dy;
+                    if ((dx == 0 && dy == 0) || xx < 0 || yy < 0 || xx >= width || yy >= height)
+                        continue;
+                    Control to = new Control(xx, yy);
+                    double time = g + model.cost(from, to);
+                    if (time + model.heuristic(to, leg.goal) >= leg.incumbent())
+                        continue;
+                    int next = layout.index(xx, yy), owner = owner(xx, yy);
+                    if (owner == id)
+                        relax(next, cell, time);
+                    else
+                        send(owner, new Relaxation(next, cell, time));
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int sinceFlush = 0;
+            while (true) {
+                drain();
+                double[] top = open.poll();
+                if (top != null && top[1] > best.get((int) top[2]).g)
+                    continue;
+                if (top != null && top[0] < leg.incumbent()) {
+                    expand((int) top[2], top[1]);
+                    if (++sinceFlush == FLUSH_EVERY) {
+                        flushAll();
+                        sinceFlush = 0;
+                    }
+                    continue;
+                }
+                // nothing left that could beat the incumbent, so go idle until another batch comes in
+                open.clear();
+                flushAll();
+                sinceFlush = 0;
+                if (!inbox.isEmpty())
+                    continue;
+                leg.work.decrementAndGet();
+                while (true) {
+                    List<Relaxation> batch = inbox.poll();
+                    if (batch != null) {
+                        // the batch's share of the work carries over to this worker being busy again
+                        for (Relaxation r : batch)
+                            relax(r.cell, r.parent, r.g);
+                        break;
+                    }
+                    if (leg.work.get() == 0)
+                        return;
+                    Thread.yield();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the worker that owns a pixel
+     */
+    private int owner(int x, int y) {
+        long h = (x / BLOCK) * 0x9E3779B97F4A7C15L ^ (y / BLOCK) * 0xC2B2AE3D27D4EB4FL;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 32;
+        return (int) Long.remainderUnsigned(h, threads);
+    }
+
+    private Control control(int cell) {
+        return new Control(layout.x(cell), layout.y(cell));
+    }
+
+    /**
+     * performs the search for one leg on all the worker threads
+     *
+     * @param start the starting point
+     * @param goal  the goal point
+     * @return the path, its distance and cost, and how many pixels were expanded by all the workers
+     */
+    public LegResult search(Control start, Control goal) {
+        Leg leg = new Leg(goal);
+        for (int i = 0; i < threads; i++)
+            leg.workers[i] = new Worker(leg, i);
+        int startCell = layout.index(start.getX(), start.getY());
+        leg.workers[owner(start.getX(), start.getY())].relax(startCell, -1, 0.0);
+
+        Thread[] running = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            running[i] = new Thread(leg.workers[i], "hda-" + i);
+            running[i].start();
+        }
+        int expanded = 0;
+        for (int i = 0; i < threads; i++) {
+            try {
+                running[i].join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while searching a leg.", e);
+            }
+            expanded += leg.workers[i].expanded;
+        }
+
+        double cost = leg.incumbent();
+        if (cost == Double.POSITIVE_INFINITY)
+            return LegResult.unreachable(expanded);
+        LinkedList<Control> path = new LinkedList<>();
+        int cell = leg.goalCell;
+        while (cell != -1) {
+            path.addFirst(control(cell));
+            Control c = path.getFirst();
+            cell = leg.workers[owner(c.getX(), c.getY())].best.get(cell).parent;
+        }
+        return new LegResult(new PathList(path), model.pathDistance(path), cost, expanded);
+    }
+
+    /**
+     * @return number of worker threads for each leg
+     */
+    public int getThreads() {
+        return threads;
+    }
+}
@@ -41,6 +41,15 @@ public class PathList {
         this.controls = new LinkedList<>();
     }
 
+    /**
+     * Constructor for a copy of another path list, so it can be consumed more than once
+     *
+     * @param other the path list to copy
+     */
+    public PathList(PathList other) {
+        this.controls = new LinkedList<>(other.controls);
+    }
+
     public PathList(Collection<Control> collection){
         this.controls = new LinkedList<>(collection);
     }
@@ -70,6 +79,13 @@ public class PathList {
         return !controls.isEmpty();
     }
 
+    /**
+     * @return the number of controls left in the list
+     */
+    public int size() {
+        return controls.size();
+    }
+
     /**
      * @return string representation of a util.PathList
      */
@@ -0,0 +1,124 @@
+package util;
+
+import util.point.State;
+import util.terrain.Terrain;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Routes many runners over one course. The terrain, elevation and season view are loaded once and
+ * shared by every runner; only the search is run per profile, all profiles at the same time. Each
+ * profile gets the components of the season view over the colors it can cross, so its legs between
+ * two components fail before they are searched.
+ * <p>
+ * Courses over the same terrain share controls, most of all the finish. Routing several courses gives
+ * each profile a {@link DistanceFieldCache}, so a goal asked for often enough is walked down its field
+ * rather than searched.
+ *
+ * @author Alex Wall (asw8675)
+ */
+public class RunnerBatch {
+
+    /**
+     * most bytes of distance fields each profile keeps when several courses are routed
+     */
+    public static final long FIELD_BUDGET = 64L << 20;
+
+    /**
+     * number of times a goal is asked for before its distance field is built; a field floods the whole
+     * terrain, which on data/normal takes as long as routing a few full courses, so it only pays off for
+     * a goal that many legs run to
+     */
+    public static final int BUILD_AFTER = 8;
+
+    /**
+     * Private constructor
+     */
+    private RunnerBatch() {
+    }
+
+    /**
+     * @param profiles the runners
+     * @throws IllegalArgumentException if two profiles have the same name
+     */
+    private static void checkNames(List<RunnerProfile> profiles) {
+        Set<String> names = new HashSet<>();
+        for (RunnerProfile profile : profiles) {
+            if (!names.add(profile.name))
+                throw new IllegalArgumentException(String.format("Profile %s is given more than once.", profile.name));
+        }
+    }
+
+    /**
+     * routes every profile over the course
+     *
+     * @param terrain  the terrain, already for the season to route in
+     * @param course   the controls to visit, left as it is
+     * @param profiles the runners
+     * @param mode     how each leg is searched
+     * @param executor where to run the profiles
+     * @return the path and distance of each profile, by profile name, in the order of the profiles
+     * @throws IllegalArgumentException if two profiles have the same name
+     */
+    public static Map<String, State<PathList, Double>> route(Terrain terrain, PathList course,
+                                                             List<RunnerProfile> profiles, SearchMode mode,
+                                                             Executor executor) {
+        checkNames(profiles);
+        List<CompletableFuture<State<PathList, Double>>> runs = new ArrayList<>();
+        for (RunnerProfile profile : profiles) {
+            PathList path = new PathList(course);
+            runs.add(CompletableFuture.supplyAsync(() -> {
+                Orienteering orienteering = new Orienteering(terrain, path, mode, profile);
+                orienteering.setConnectivity(new Connectivity(terrain, Connectivity.fasterThan(profile, 0.0)));
+                return orienteering.start();
+            }, executor));
+        }
+        Map<String, State<PathList, Double>> results = new LinkedHashMap<>();
+        for (int i = 0; i < profiles.size(); i++)
+            results.put(profiles.get(i).name, runs.get(i).join());
+        return results;
+    }
+
+    /**
+     * routes every profile over several courses, each leg found exactly. Each profile routes its courses
+     * one after the other through its own distance field cache, so a goal that an earlier course already
+     * asked for is walked down its field.
+     *
+     * @param terrain     the terrain, already for the season to route in
+     * @param courses     the courses, each left as it is
+     * @param profiles    the runners
+     * @param fieldBudget most bytes of distance fields each profile keeps
+     * @param buildAfter  number of times a goal is asked for before its distance field is built
+     * @param executor    where to run the profiles
+     * @return the path and distance of each course, in the order of the courses, for each profile, by
+     * profile name, in the order of the profiles
+     * @throws IllegalArgumentException if two profiles have the same name
+     */
+    public static Map<String, List<State<PathList, Double>>> routeCourses(Terrain terrain, List<PathList> courses,
+                                                                          List<RunnerProfile> profiles,
+                                                                          long fieldBudget, int buildAfter,
+                                                                          Executor executor) {
+        checkNames(profiles);
+        List<CompletableFuture<List<State<PathList, Double>>>> runs = new ArrayList<>();
+        for (RunnerProfile profile : profiles) {
+            runs.add(CompletableFuture.supplyAsync(() -> {
+                DistanceFieldCache cache = new DistanceFieldCache(terrain, profile, fieldBudget, buildAfter);
+                List<State<PathList, Double>> routes = new ArrayList<>();
+                for (PathList course : courses)
+                    routes.add(cache.start(new PathList(course)));
+                return routes;
+            }, executor));
+        }
+        Map<String, List<State<PathList, Double>>> results = new LinkedHashMap<>();
+        for (int i = 0; i < profiles.size(); i++)
+            results.put(profiles.get(i).name, runs.get(i).join());
+        return results;
+    }
+}
@@ -0,0 +1,181 @@
+package util;
+
+import util.terrain.PixelColor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * How fast a kind of runner crosses each PixelColor and how much climbing and steep ground slow them
+ * down. The default profile uses the speeds of the PixelColor enum and no climb or slope penalty.
+ * <p>
+ * A profile file holds any number of profiles, each started by its name in brackets and followed by
+ * one setting per line, a PixelColor name or abbreviation and its speed, {@code climb} and the
+ * seconds added per meter climbed, or {@code slope} and how much longer each step is per meter of
+ * rise per meter of the ground stepped onto. Colors left out keep their default speed, and a speed of 0
+ * means the runner cannot cross the color at all; blank lines and lines starting with # are skipped:
+ * <pre>
+ * [walker]
+ * climb 1.5
+ * slope 2.0
+ * PAVED_ROAD 1.6
+ * O 1.4
+ * </pre>
+ *
+ * @author Alex Wall (asw8675)
+ */
+public class RunnerProfile {
+
+    /**
+     * the speeds of the PixelColor enum and no climb penalty
+     */
+    public static final RunnerProfile DEFAULT = new RunnerProfile("default", new EnumMap<>(PixelColor.class), 0.0, 0.0);
+
+    public final String name;
+
+    /**
+     * speed per PixelColor, indexed by ordinal
+     */
+    private final double[] speeds;
+
+    /**
+     * seconds added for every meter climbed
+     */
+    public final double climbPenalty;
+
+    /**
+     * fraction a step is lengthened by for every meter of rise per meter of the ground stepped onto
+     */
+    public final double slopePenalty;
+
+    /**
+     * the fastest speed over any PixelColor
+     */
+    public final double maxSpeed;
+
+    /**
+     * Constructor
+     *
+     * @param name         the name of the profile
+     * @param speeds       speeds that differ from the PixelColor enum
+     * @param climbPenalty seconds added for every meter climbed
+     * @throws IllegalArgumentException if a speed or the climb penalty is negative, or no speed is positive
+     */
+    public RunnerProfile(String name, Map<PixelColor, Double> speeds, double climbPenalty) {
+        this(name, speeds, climbPenalty, 0.0);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param name         the name of the profile
+     * @param speeds       speeds that differ from the PixelColor enum
+     * @param climbPenalty seconds added for every meter climbed
+     * @param slopePenalty fraction a step is lengthened by for every meter of rise per meter of the ground
+     *                     stepped onto
+     * @throws IllegalArgumentException if a speed or a penalty is negative, or no speed is positive
+     */
+    public RunnerProfile(String name, Map<PixelColor, Double> speeds, double climbPenalty, double slopePenalty) {
+        if (climbPenalty < 0)
+            throw new IllegalArgumentException(String.format("Climb penalty of %s is negative.", name));
+        if (slopePenalty < 0)
+            throw new IllegalArgumentException(String.format("Slope penalty of %s is negative.", name));
+        this.name = name;
+        this.climbPenalty = climbPenalty;
+        this.slopePenalty = slopePenalty;
+        this.speeds = new double[PixelColor.values().length];
+        double max = 0.0;
+        for (PixelColor pc : PixelColor.values()) {
+            double speed = speeds.getOrDefault(pc, pc.speed);
+            if (speed < 0)
+                throw new IllegalArgumentException(String.format("Speed of %s for %s is negative.", pc, name));
+            this.speeds[pc.ordinal()] = speed;
+            max = Math.max(max, speed);
+        }
+        if (max == 0.0)
+            throw new IllegalArgumentException(String.format("%s cannot cross any PixelColor.", name));
+        this.maxSpeed = max;
+    }
+
+    /**
+     * @param pc the PixelColor
+     * @return the speed of this runner over the PixelColor
+     */
+    public double speed(PixelColor pc) {
+        return speeds[pc.ordinal()];
+    }
+
+    /**
+     * @param pc the PixelColor
+     * @return true if this runner can cross the PixelColor at all; false if its speed is 0
+     */
+    public boolean canCross(PixelColor pc) {
+        return speeds[pc.ordinal()] > 0.0;
+    }
+
+    /**
+     * reads every profile in a profile file
+     *
+     * @param reader the profile file
+     * @return the profiles in the order they are in the file
+     * @throws IOException              when the file cannot be read
+     * @throws IllegalArgumentException if a line cannot be understood
+     */
+    public static List<RunnerProfile> readAll(BufferedReader reader) throws IOException {
+        List<RunnerProfile> profiles = new ArrayList<>();
+        String name = null;
+        Map<PixelColor, Double> speeds = new EnumMap<>(PixelColor.class);
+        double climb = 0.0, slope = 0.0;
+        int lineNumber = 0;
+        while (true) {
+            String line = reader.readLine();
+            lineNumber++;
+            if (line == null)
+                break;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            if (line.startsWith("[") && line.endsWith("]")) {
+                if (name != null)
+                    profiles.add(new RunnerProfile(name, speeds, climb, slope));
+                name = line.substring(1, line.length() - 1).strip();
+                speeds = new EnumMap<>(PixelColor.class);
+                climb = 0.0;
+                slope = 0.0;
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            if (name == null || fields.length != 2)
+                throw new IllegalArgumentException(String.format("Cannot read profile line %d: \"%s\".", lineNumber, line));
+            double value = Double.parseDouble(fields[1]);
+            if (fields[0].equalsIgnoreCase("climb"))
+                climb = value;
+            else if (fields[0].equalsIgnoreCase("slope"))
+                slope = value;
+            else
+                speeds.put(colorFromString(fields[0]), value);
+        }
+        if (name != null)
+            profiles.add(new RunnerProfile(name, speeds, climb, slope));
+        return profiles;
+    }
+
+    /**
+     * retrieve a PixelColor by its name or abbreviation
+     *
+     * @throws IllegalArgumentException if the PixelColor is not found
+     */
+    private static PixelColor colorFromString(String color) {
+        for (PixelColor pc : PixelColor.values()) {
+            if (color.equalsIgnoreCase(pc.name()) || color.equals(pc.abbrev))
+                return pc;
+        }
+        throw new IllegalArgumentException(String.format("No PixelColor found for \"%s\".", color));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RunnerProfile(%s, climb=%.2f, slope=%.2f, max speed=%.2f)", name, climbPenalty, slopePenalty, maxSpeed);
+    }
+}
@@ -0,0 +1,58 @@
+package util;
+
+/**
+ * The ways Orienteering can search a leg
+ *
+ * @author Alex Wall (asw8675)
+ */
+public enum SearchMode {
+
+    /**
+     * the original A*: the heuristic divides by the speed of the current pixel and the open queue is
+     * ordered by whole seconds, so it is fast but may miss the fastest path
+     */
+    CLASSIC(false),
+
+    /**
+     * A* with the heuristic divided by the fastest speed of the runner, so it never overestimates, and an
+     * open queue ordered by the exact f(n)
+     */
+    ADMISSIBLE(true),
+
+    /**
+     * no heuristic at all, an exact Dijkstra search
+     */
+    DIJKSTRA(true),
+
+    /**
+     * Theta*: the admissible A*, but a pixel may take its parent's parent as its own wherever the straight
+     * line between them crosses a single speed, so paths are straight segments at any angle and only their
+     * turning points are returned
+     */
+    ANY_ANGLE(false);
+
+    /**
+     * true if the mode always finds the fastest path
+     */
+    public final boolean exact;
+
+    SearchMode(boolean exact) {
+        this.exact = exact;
+    }
+
+    /**
+     * retrieve the SearchMode type from the given string
+     *
+     * @param mode the string
+     * @return the SearchMode constant type
+     * @throws IllegalArgumentException if the mode for string is not found
+     */
+    public static SearchMode fromString(String mode) {
+        for (SearchMode m : SearchMode.values()) {
+            if (mode.equalsIgnoreCase(m.name())) {
+                return m;
+            }
+        }
+        throw new IllegalArgumentException(String.format("No search mode found for \"%s\".", mode));
+    }
+}
@@ -0,0 +1,168 @@
+package util;
+
+import util.point.Control;
+import util.terrain.GridLayout;
+import util.terrain.PixelColor;
+import util.terrain.Terrain;
+
+import java.awt.image.BufferedImage;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Records where a search spent its effort: the order each pixel was first taken off the open queue
+ * and how many times it was taken off. Used to draw a heatmap of a leg over the terrain.
+ *
+ * @author Alex Wall (asw8675)
+ */
+public class SearchTrace {
+
+    private final Terrain terrain;
+
+    private final int width, height;
+
+    /**
+     * layout of the per pixel arrays, the terrain's
+     */
+    private final GridLayout layout;
+
+    /**
+     * per pixel, the expansion it was first expanded at (starting at 1), 0 if never
+     */
+    private final int[] order;
+
+    /**
+     * per pixel, the number of times it was expanded
+     */
+    private final int[] count;
+
+    private int expansions;
+    private int distinct;
+
+    /**
+     * Constructor
+     *
+     * @param terrain the terrain being searched, for the size and for drawing the heatmap
+     */
+    public SearchTrace(Terrain terrain) {
+        this.terrain = terrain;
+        this.width = terrain.width;
+        this.height = terrain.height;
+        this.layout = terrain.getLayout();
+        this.order = new int[layout.size()];
+        this.count = new int[layout.size()];
+    }
+
+    /**
+     * records that a pixel was taken off the open queue
+     *
+     * @param c the pixel
+     */
+    void expand(Control c) {
+        int i = layout.index(c.getX(), c.getY());
+        expansions++;
+        if (count[i]++ == 0) {
+            order[i] = expansions;
+            distinct++;
+        }
+    }
+
+    /**
+     * @return the number of times any pixel was taken off the open queue
+     */
+    public int getExpansions() {
+        return expansions;
+    }
+
+    /**
+     * @return the number of different pixels taken off the open queue
+     */
+    public int getDistinct() {
+        return distinct;
+    }
+
+    /**
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the number of times the pixel was taken off the open queue
+     */
+    public int getCount(int x, int y) {
+        return count[layout.index(x, y)];
+    }
+
+    /**
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the expansion the pixel was first taken off the open queue at, 0 if it never was
+     */
+    public int getOrder(int x, int y) {
+        return order[layout.index(x, y)];
+    }
+
+    /**
+     * @return the number of distinct pixels expanded for each PixelColor
+     */
+    public Map<PixelColor, Integer> expandedByColor() {
+        Map<PixelColor, Integer> colors = new EnumMap<>(PixelColor.class);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (count[layout.index(x, y)] > 0)
+                    colors.merge(terrain.getPixel(x, y), 1, Integer::sum);
+            }
+        }
+        return colors;
+    }
+
+    /**
+     * draws the heatmap over a copy of the terrain, with the path drawn on top; pixels expanded early
+     * are blue and fade to yellow for the last ones, pixels expanded more than once are drawn magenta
+     *
+     * @param path the path found by the search, consumed by this method
+     * @return the heatmap image
+     */
+    public BufferedImage toImage(PathList path) {
+        BufferedImage image = terrain.putPath(new PathList());
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = layout.index(x, y);
+                if (count[i] == 0)
+                    continue;
+                int heat;
+                if (count[i] > 1) {
+                    int level = Math.min(255, 128 + 16 * count[i]);
+                    heat = (level << 16) | level;
+                } else {
+                    int level = (int) (255L * order[i] / Math.max(1, expansions));
+                    heat = (level << 16) | (level << 8) | (255 - level);
+                }
+                int base = image.getRGB(x, y);
+                image.setRGB(x, y, (((base & 0xFCFCFC) >> 2) + 3 * ((heat & 0xFCFCFC) >> 2)) | 0xFF000000);
+            }
+        }
+        while (path.hasNext()) {
+            Control c = path.dequeue();
+            image.setRGB(c.getX(), c.getY(), PixelColor.ME.getRGBFill());
+        }
+        return image;
+    }
+
+    /**
+     * one line summary of a leg: how much was expanded against how long the path is, and which
+     * PixelColors the expanded pixels were; the length of an any-angle path is of the pixels between
+     * its turning points
+     *
+     * @param result the result of the leg
+     * @return the summary
+     */
+    public String summary(LegResult result) {
+        int pathLength = Orienteering.pixelsOf(new PathList(result.getPath())).size();
+        StringBuilder sb = new StringBuilder(String.format(
+                "expansions=%d distinct=%d path=%d ratio=%.1f cost=%.3f colors=[",
+                expansions, distinct, pathLength, pathLength == 0 ? 0.0 : (double) distinct / pathLength,
+                result.getCost()));
+        for (Map.Entry<PixelColor, Integer> e : expandedByColor().entrySet()) {
+            sb.append(' ').append(e.getKey().abbrev).append('=').append(e.getValue());
+        }
+        return sb.append(" ]").toString();
+    }
+}
@@ -0,0 +1,153 @@
+package util;
+
+import util.point.Control;
+import util.point.State;
+import util.season.Season;
+import util.terrain.TerrainWindow;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Routes a course over only the part of the terrain it needs: the box around its controls plus a margin
+ * is decoded as a {@link TerrainWindow}, and whenever a leg's search runs into the side of the window the
+ * margin is doubled, the bigger window decoded and the leg searched again. Legs already routed stay
+ * routed, every window holds the one before it.
+ *
+ * @author Alex Wall (asw8675)
+ */
+public class WindowedOrienteering {
+
+    private final File image, elevation;
+    private final Season season;
+    private final SearchMode mode;
+    private final RunnerProfile profile;
+
+    /**
+     * pixels around the box of the controls that are decoded
+     */
+    private int margin;
+
+    private TerrainWindow window;
+
+    /**
+     * number of times the window had to grow
+     */
+    private int growths;
+
+    /**
+     * Constructor
+     *
+     * @param image     the terrain image file
+     * @param elevation the elevation file
+     * @param season    the season to route in
+     * @param margin    pixels around the box of the controls to decode at first
+     * @throws IllegalArgumentException if the margin is negative
+     */
+    public WindowedOrienteering(File image, File elevation, Season season, int margin) {
+        this(image, elevation, season, margin, SearchMode.CLASSIC, RunnerProfile.DEFAULT);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param image     the terrain image file
+     * @param elevation the elevation file
+     * @param season    the season to route in
+     * @param margin    pixels around the box of the controls to decode at first
+     * @param mode      how each leg is searched
+     * @param profile   speeds of the orienteer and how much climbing slows them down
+     * @throws IllegalArgumentException if the margin is negative
+     */
+    public WindowedOrienteering(File image, File elevation, Season season, int margin, SearchMode mode, RunnerProfile profile) {
+        if (margin < 0)
+            throw new IllegalArgumentException(String.format("Window margin of %d is negative.", margin));
+        this.image = image;
+        this.elevation = elevation;
+        this.season = season;
+        this.margin = margin;
+        this.mode = mode;
+        this.profile = profile;
+    }
+
+    /**
+     * decodes the window around the controls, takes a pair of sequence points from the path list and
+     * performs the search between them inside the window
+     *
+     * @param pathList the controls to visit, consumed by this method
+     * @return a full list of all the points that the orienteer travels and their total distance
+     * @throws IOException              when the terrain or elevations cannot be read
+     * @throws IllegalArgumentException if a control cannot be reached from the one before it
+     */
+    public State<PathList, Double> start(PathList pathList) throws IOException {
+        List<Control> controls = new ArrayList<>();
+        while (pathList.hasNext())
+            controls.add(pathList.dequeue());
+        PathList fullList = new PathList();
+        double fullDistance = 0.0;
+        if (controls.isEmpty())
+            return new State<>(fullList, fullDistance);
+
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (Control c : controls) {
+            minX = Math.min(minX, c.getX());
+            minY = Math.min(minY, c.getY());
+            maxX = Math.max(maxX, c.getX());
+            maxY = Math.max(maxY, c.getY());
+        }
+        Rectangle box = new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+        window = read(box);
+        for (Control c : controls) {
+            if (c.getX() < 0 || c.getY() < 0 || c.getX() >= window.width || c.getY() >= window.height)
+                throw new IllegalArgumentException(String.format("Control %s is not on the %dx%d terrain.",
+                        c, window.width, window.height));
+        }
+        Orienteering orienteering = new Orienteering(window, new PathList(), mode, profile);
+
+        for (int i = 1; i < controls.size(); i++) {
+            LegResult leg;
+            while (true) {
+                try {
+                    leg = orienteering.search(controls.get(i - 1), controls.get(i));
+                    break;
+                } catch (IndexOutOfBoundsException e) {
+                    if (window.isFull())
+                        throw e;
+                    margin = Math.max(2 * margin, TerrainWindow.SEASON_HALO);
+                    growths++;
+                    window = read(box);
+                    orienteering = new Orienteering(window, new PathList(), mode, profile);
+                }
+            }
+            Orienteering.reachable(leg, controls.get(i - 1), controls.get(i));
+            fullList.enqueueAll(leg.getPath());
+            fullDistance += leg.getDistance();
+        }
+        return new State<>(fullList, fullDistance);
+    }
+
+    /**
+     * decodes the box plus the margin
+     */
+    private TerrainWindow read(Rectangle box) throws IOException {
+        return TerrainWindow.read(image, elevation, season,
+                new Rectangle(box.x - margin, box.y - margin, box.width + 2 * margin, box.height + 2 * margin));
+    }
+
+    /**
+     * @return the last window decoded, null before a course is started
+     */
+    public TerrainWindow getWindow() {
+        return window;
+    }
+
+    /**
+     * @return the number of times the window had to grow
+     */
+    public int getGrowths() {
+        return growths;
+    }
+}
@@ -4,6 +4,7 @@ import util.point.State;
 import util.terrain.ElevationGrid;
 import util.point.Point;
 import util.terrain.PixelColor;
+import util.terrain.PixelGrid;
 
 import java.util.*;
 
@@ -42,7 +43,7 @@ public class Spring {
      * @param waterEdges a list of water edges with all state value to 1 to note the starting pixel
      * @return a set of visited points that would be submerged underwater
      */
-    public static HashSet<Point> mudTerrainSet(PixelColor[][] map, ElevationGrid elevationGrid, HashSet<Point> waterEdges) {
+    public static HashSet<Point> mudTerrainSet(PixelGrid map, ElevationGrid elevationGrid, HashSet<Point> waterEdges) {
         HashSet<Point> visited = new HashSet<>();
         Queue<State<State<Point, Integer>, Double>> bfsQueue = new LinkedList<>();
 
@@ -81,6 +82,48 @@ public class Spring {
     }
 
 
+    /**
+     * Same as {@link #mudTerrainSet}, but the BFS goes one step at a time from every water edge at once,
+     * and a pixel reached by several waters in the same step takes the lowest of them. The mud then does
+     * not depend on the order of the water edges and a pixel only depends on the water within reach of
+     * it, so a part of a terrain gets the same mud as the whole terrain built this way. The mud can
+     * differ from {@link #mudTerrainSet} where waters at different heights meet.
+     *
+     * @param map        grid of PixelColor per pixel on terrain
+     * @param waterEdges a list of water edges with all state value to 1 to note the starting pixel
+     * @return a set of visited points that would be submerged underwater
+     */
+    public static HashSet<Point> mudTerrainSetByStep(PixelGrid map, ElevationGrid elevationGrid, HashSet<Point> waterEdges) {
+        HashSet<Point> visited = new HashSet<>();
+        // the land reached in the last step, with the elevation of the water that reached it
+        Map<Point, Double> step = new HashMap<>();
+
+        // initially put land terrains into the BFS queue
+        for (Point w : waterEdges) {
+            double wEl = elevationGrid.get(w.getY(), w.getX());
+            for (State<Point, Double> land : getLandPixels(w, wEl, elevationGrid, map)) {
+                step.merge(land.getData(), land.getValue(), Math::min);
+            }
+        }
+        visited.addAll(step.keySet());
+
+        // do the BFS, Break-dance Fire Slide
+        for (int depth = 2; depth <= MAX_MUD_LENGTH && !step.isEmpty(); depth++) {
+            Map<Point, Double> next = new HashMap<>();
+            for (Map.Entry<Point, Double> current : step.entrySet()) {
+                for (State<Point, Double> land : getLandPixels(current.getKey(), current.getValue(), elevationGrid, map)) {
+                    if (!visited.contains(land.getData())) {
+                        next.merge(land.getData(), land.getValue(), Math::min);
+                    }
+                }
+            }
+            visited.addAll(next.keySet());
+            step = next;
+        }
+        return visited;
+    }
+
+
     /**
      * get adjacent land pixels to be converted into mud
      *
@@ -90,13 +133,13 @@ public class Spring {
      * @param map    the pixel map
      * @return list of pixels that will be submerged in water
      */
-    private static List<State<Point, Double>> getLandPixels(Point p, double initEl, ElevationGrid eg, PixelColor[][] map) {
+    private static List<State<Point, Double>> getLandPixels(Point p, double initEl, ElevationGrid eg, PixelGrid map) {
         List<State<Point, Double>> mud = new ArrayList<>();
         for (int x = -1; x <= 1; x++) {
             for (int y = -1; y <= 1; y++) {
                 try {
-                    PixelColor pc = map[p.getX() + x][p.getY() + y];
-                    Double el = eg.get(p.getY() + y, p.getX() + x);
+                    PixelColor pc = map.get(p.getX() + x, p.getY() + y);
+                    double el = eg.get(p.getY() + y, p.getX() + x);
                     if (pc != PixelColor.LAKE_SWAMP_MARSH && pc != PixelColor.OUT_OF_BOUNDS && initEl + 1 >= el) {
                         mud.add(new State<>(new Point(p.getX() + x, p.getY() + y), initEl));
                     }
@@ -3,6 +3,7 @@ package util.season;
 import util.point.Point;
 import util.point.State;
 import util.terrain.PixelColor;
+import util.terrain.PixelGrid;
 
 import java.util.*;
 
@@ -41,7 +42,7 @@ public class Winter {
      * @param waterEdges a list of water edges with all state value to 1 to note the starting pixel
      * @return a set of visited frozen points
      */
-    public static HashSet<Point> freezeWaterSet(PixelColor[][] map, HashSet<Point> waterEdges) {
+    public static HashSet<Point> freezeWaterSet(PixelGrid map, HashSet<Point> waterEdges) {
         Queue<State<Point, Integer>> bfsQueue = new LinkedList<>();
         HashSet<Point> visited = new HashSet<>(waterEdges);
 
@@ -79,12 +80,12 @@ public class Winter {
      * @param map the pixel color map
      * @return list of adjacent water pixel points
      */
-    private static List<Point> getWaterPixels(Point p, PixelColor[][] map) {
+    private static List<Point> getWaterPixels(Point p, PixelGrid map) {
         List<Point> waters = new ArrayList<>();
         for (int x = -1; x <= 1; x ++) {
             for (int y = -1; y <= 1; y ++) {
                 try {
-                    PixelColor pc = map[p.getX() + x][p.getY() + y];
+                    PixelColor pc = map.get(p.getX() + x, p.getY() + y);
                     if (pc == PixelColor.LAKE_SWAMP_MARSH)
                         waters.add(new Point(p.getX() + x, p.getY() + y));
                 } catch (IndexOutOfBoundsException ignored) {
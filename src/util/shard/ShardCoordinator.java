@@ -0,0 +1,298 @@
+package util.shard;
+
+import util.LegResult;
+import util.Orienteering;
+import util.PathList;
+import util.point.Control;
+import util.point.State;
+import util.season.Season;
+import util.terrain.TerrainWindow;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.*;
+import java.util.*;
+
+/**
+ * Routes a course over a terrain split into horizontal bands, each band owned by a {@link ShardWorker}
+ * process on this host.
+ * <p>
+ * The first row of every band below the first is a seam that the band shares with the band above it.
+ * Every path between two bands has to pass through the seams in between, so a leg is solved by having
+ * the workers search their own band from the seam times handed to them, then exchanging the times
+ * they found on their seams with their neighbors until no seam time improves. The path is then traced
+ * back band by band from the goal.
+ * <p>
+ * A band is loaded with {@link TerrainWindow#SEASON_HALO} extra rows above and below it so that winter
+ * and spring change the same pixels as they do on the full terrain. As in a {@link TerrainWindow}, the
+ * spring mud of more than one band is spread one step at a time, the same as on a full terrain with
+ * {@link util.terrain.Terrain#setStepwiseMud} set.
+ *
+ * @author Alex Wall (asw8675)
+ */
+public class ShardCoordinator implements Closeable {
+
+    /**
+     * a worker process and the band it owns
+     */
+    private static class Shard {
+        final Process process;
+        final BufferedReader out;
+        final PrintWriter in;
+        final int start, end;
+        final ShardTiming timing;
+
+        Shard(Process process, int index, int start, int end) {
+            this.process = process;
+            this.out = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            this.in = new PrintWriter(new BufferedWriter(new OutputStreamWriter(process.getOutputStream())));
+            this.start = start;
+            this.end = end;
+            this.timing = new ShardTiming(index, start, end);
+        }
+
+        String readLine() throws IOException {
+            String line = out.readLine();
+            if (line == null || line.startsWith("ERR"))
+                throw new IllegalStateException(String.format("Shard %d failed: %s", timing.shard, line));
+            return line;
+        }
+
+        boolean contains(int y) {
+            return y >= start && y <= end;
+        }
+    }
+
+    private final List<Shard> shards;
+
+    private final int width;
+
+    /**
+     * Constructor, starts one worker process per band and waits for them to load
+     *
+     * @param image     the terrain image file
+     * @param elevation the elevation file
+     * @param season    the season to route in
+     * @param count     number of bands
+     * @throws IOException              when the image cannot be read or a worker cannot be started
+     * @throws IllegalArgumentException if there are more bands than rows
+     */
+    public ShardCoordinator(File image, File elevation, Season season, int count) throws IOException {
+        int height;
+        try (ImageInputStream in = ImageIO.createImageInputStream(image)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext())
+                throw new IOException(String.format("No image reader for \"%s\".", image));
+            ImageReader reader = readers.next();
+            reader.setInput(in);
+            this.width = reader.getWidth(0);
+            height = reader.getHeight(0);
+            reader.dispose();
+        }
+        if (count < 1 || count > height)
+            throw new IllegalArgumentException(String.format("Cannot split %d rows into %d bands.", height, count));
+
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        this.shards = new ArrayList<>(count);
+        try {
+            for (int k = 0; k < count; k++) {
+                int start = k * height / count;
+                int end = k == count - 1 ? height - 1 : (k + 1) * height / count;
+                Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        ShardWorker.class.getName(), image.getPath(), elevation.getPath(), season.name(),
+                        String.valueOf(Math.max(0, start - TerrainWindow.SEASON_HALO)),
+                        String.valueOf(Math.min(height, end + 1 + TerrainWindow.SEASON_HALO)),
+                        String.valueOf(start), String.valueOf(end))
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start();
+                shards.add(new Shard(process, k, start, end));
+            }
+            for (Shard shard : shards) {
+                shard.timing.setLoadMillis(Long.parseLong(shard.readLine().split(" ")[1]));
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * takes a pair of sequence points from the path list and routes between them across the bands
+     *
+     * @param pathList the controls to visit, consumed by this method
+     * @return a full list of all the points that the orienteer travels and their total distance
+     * @throws IOException              when a worker cannot be reached
+     * @throws IllegalArgumentException if a control cannot be reached from the one before it
+     */
+    public State<PathList, Double> start(PathList pathList) throws IOException {
+        Control current = pathList.dequeue();
+        PathList fullList = new PathList();
+        double fullDistance = 0.0;
+        while (pathList.hasNext()) {
+            Control next = pathList.dequeue();
+            State<PathList, Double> subList = search(current, next);
+            fullList.enqueueAll(subList.getData());
+            fullDistance += subList.getValue();
+            current = next;
+        }
+        return new State<>(fullList, fullDistance);
+    }
+
+    /**
+     * @return how long each band spent loading and routing so far
+     */
+    public List<ShardTiming> getTimings() {
+        List<ShardTiming> timings = new ArrayList<>();
+        for (Shard shard : shards)
+            timings.add(shard.timing);
+        return timings;
+    }
+
+    /**
+     * routes a single leg by exchanging seam times between the bands until they settle
+     *
+     * @param start the starting point
+     * @param goal  the goal point
+     * @return the path and its distance
+     * @throws IOException              when a worker cannot be reached
+     * @throws IllegalArgumentException if no band reaches the goal
+     */
+    private State<PathList, Double> search(Control start, Control goal) throws IOException {
+        // seam j is the first row of band j + 1
+        double[][] seams = new double[shards.size() - 1][width];
+        for (double[] seam : seams)
+            Arrays.fill(seam, Double.POSITIVE_INFINITY);
+
+        // a band the leg never reaches must not answer with the times of the leg before
+        for (Shard shard : shards)
+            shard.in.println("CLEAR");
+
+        Set<Integer> dirty = new TreeSet<>();
+        for (int k = 0; k < shards.size(); k++)
+            if (shards.get(k).contains(start.getY()))
+                dirty.add(k);
+
+        int expanded = 0;
+        while (!dirty.isEmpty()) {
+            for (int k : dirty)
+                sendRun(k, start, seams);
+            Set<Integer> next = new TreeSet<>();
+            for (int k : dirty) {
+                Shard shard = shards.get(k);
+                String[] header = shard.readLine().split(" ");
+                shard.timing.addRun(Long.parseLong(header[1]));
+                int count = Integer.parseInt(header[2]);
+                expanded += Integer.parseInt(header[3]);
+                for (int i = 0; i < count; i++) {
+                    String[] fields = shard.readLine().split(" ");
+                    int x = Integer.parseInt(fields[0]), y = Integer.parseInt(fields[1]);
+                    double time = Double.parseDouble(fields[2]);
+                    int seam = y == shard.start ? k - 1 : k;
+                    if (seam < 0 || seam >= seams.length || y != shards.get(seam + 1).start)
+                        continue;
+                    if (time < seams[seam][x]) {
+                        seams[seam][x] = time;
+                        next.add(seam == k ? k + 1 : k - 1);
+                    }
+                }
+            }
+            dirty = next;
+        }
+
+        // the goal may lie on a seam and so in two bands, take the faster one
+        int band = -1;
+        double best = Double.POSITIVE_INFINITY;
+        for (int k = 0; k < shards.size(); k++) {
+            Shard shard = shards.get(k);
+            if (shard.contains(goal.getY())) {
+                shard.in.println("DIST " + goal.getX() + " " + goal.getY());
+                shard.in.flush();
+                double time = Double.parseDouble(shard.readLine());
+                if (time < best) {
+                    best = time;
+                    band = k;
+                }
+            }
+        }
+        if (band < 0)
+            Orienteering.reachable(LegResult.unreachable(expanded), start, goal);
+
+        // trace back from the goal, moving to the neighboring band whenever the path came across a seam
+        LinkedList<Control> path = new LinkedList<>();
+        LinkedList<Double> elevations = new LinkedList<>();
+        Control from = goal;
+        while (true) {
+            Shard shard = shards.get(band);
+            shard.in.println("TRACE " + from.getX() + " " + from.getY());
+            shard.in.flush();
+            String[] header = shard.readLine().split(" ");
+            int count = Integer.parseInt(header[0]);
+            for (int i = 0; i < count; i++) {
+                String[] fields = shard.readLine().split(" ");
+                if (i == 0 && !path.isEmpty())
+                    continue;
+                path.addFirst(new Control(Integer.parseInt(fields[0]), Integer.parseInt(fields[1])));
+                elevations.addFirst(Double.parseDouble(fields[2]));
+            }
+            if (header[1].equals("1"))
+                break;
+            from = path.getFirst();
+            band = from.getY() == shard.start ? band - 1 : band + 1;
+        }
+
+        // measured the same way Orienteering does, from the goal's predecessor back to the start
+        List<Control> points = new ArrayList<>(path);
+        List<Double> heights = new ArrayList<>(elevations);
+        double distance = 0.0;
+        for (int i = 0; i + 2 < points.size(); i++) {
+            distance += Orienteering.displacement(points.get(i), heights.get(i), points.get(i + 1), heights.get(i + 1));
+        }
+        return new State<>(new PathList(path), distance);
+    }
+
+    /**
+     * sends a band the start of the leg, if it has it, and the times known on its seams
+     */
+    private void sendRun(int k, Control start, double[][] seams) {
+        Shard shard = shards.get(k);
+        StringBuilder sb = new StringBuilder();
+        int count = 0;
+        if (shard.contains(start.getY())) {
+            sb.append(start.getX()).append(' ').append(start.getY()).append(" 0.0 1\n");
+            count++;
+        }
+        for (int seam : new int[]{k - 1, k}) {
+            if (seam < 0 || seam >= seams.length)
+                continue;
+            int row = shards.get(seam + 1).start;
+            for (int x = 0; x < width; x++) {
+                if (seams[seam][x] < Double.POSITIVE_INFINITY) {
+                    sb.append(x).append(' ').append(row).append(' ').append(seams[seam][x]).append(" 0\n");
+                    count++;
+                }
+            }
+        }
+        shard.in.print("RUN " + count + "\n" + sb);
+        shard.in.flush();
+    }
+
+    /**
+     * tells every worker to quit and waits for them
+     */
+    @Override
+    public void close() {
+        for (Shard shard : shards) {
+            shard.in.println("QUIT");
+            shard.in.flush();
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.process.waitFor();
+            } catch (InterruptedException e) {
+                shard.process.destroy();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package util.shard;
+
+/**
+ * How long one shard of a {@link ShardCoordinator} spent loading and routing
+ *
+ * @author Alex Wall (asw8675)
+ */
+public class ShardTiming {
+
+    /**
+     * index of the shard, from the top of the terrain
+     */
+    public final int shard;
+
+    /**
+     * first and last row the shard routes over
+     */
+    public final int firstRow, lastRow;
+
+    private long loadMillis;
+    private long routeMillis;
+    private int runs;
+
+    ShardTiming(int shard, int firstRow, int lastRow) {
+        this.shard = shard;
+        this.firstRow = firstRow;
+        this.lastRow = lastRow;
+    }
+
+    void setLoadMillis(long loadMillis) {
+        this.loadMillis = loadMillis;
+    }
+
+    void addRun(long millis) {
+        this.routeMillis += millis;
+        this.runs++;
+    }
+
+    /**
+     * @return time the worker took to load its band and season
+     */
+    public long getLoadMillis() {
+        return loadMillis;
+    }
+
+    /**
+     * @return time the worker spent searching its band, summed over all runs
+     */
+    public long getRouteMillis() {
+        return routeMillis;
+    }
+
+    /**
+     * @return number of searches the worker ran
+     */
+    public int getRuns() {
+        return runs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Shard %d rows %d-%d: load=%dms route=%dms runs=%d",
+                shard, firstRow, lastRow, loadMillis, routeMillis, runs);
+    }
+}
@@ -0,0 +1,295 @@
+package util.shard;
+
+import util.Orienteering;
+import util.PathList;
+import util.point.Control;
+import util.season.Season;
+import util.terrain.ElevationGrid;
+import util.terrain.Terrain;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+
+/**
+ * A worker process that owns one horizontal band of the terrain and elevation grid. The coordinator
+ * talks to it over stdin/stdout, one command per line:
+ * <ul>
+ * <li>{@code RUN n} followed by n lines {@code x y time source}: Dijkstra over the band from the given
+ * seeds, answered with {@code OK millis m expanded} and m lines {@code x y time} for the seam rows of the
+ * band</li>
+ * <li>{@code CLEAR}: forgets the last run at the start of a leg, so a band that is not run during the
+ * leg has no time to any pixel; not answered</li>
+ * <li>{@code DIST x y}: the time to a pixel from the last run</li>
+ * <li>{@code TRACE x y}: the path of the last run from a pixel back to a seed, answered with
+ * {@code k source} and k lines {@code x y elevation}</li>
+ * <li>{@code QUIT}</li>
+ * </ul>
+ * All coordinates are for the full terrain.
+ *
+ * @author Alex Wall (asw8675)
+ */
+public class ShardWorker {
+
+    /**
+     * parent of a seed handed over from a neighboring band
+     */
+    private static final int EXTERNAL = -1;
+
+    /**
+     * parent of the start of the leg
+     */
+    private static final int SOURCE = -2;
+
+    /**
+     * terrain of the loaded rows, which run past the band so the season is the same as on the full map
+     */
+    private final Terrain terrain;
+
+    private final Orienteering model;
+
+    /**
+     * first loaded row, and the first and last row the band routes over
+     */
+    private final int loadStart, bandStart, bandEnd;
+
+    private final int width, rows;
+
+    /**
+     * times and parents of the last run, indexed by (row - bandStart) * width + col
+     */
+    private final double[] dist;
+    private final int[] parent;
+
+    /**
+     * Constructor, loads the band
+     *
+     * @param image     the terrain image file
+     * @param elevation the elevation file
+     * @param season    the season to route in
+     * @param loadStart first row to load
+     * @param loadEnd   row after the last row to load
+     * @param bandStart first row the band routes over
+     * @param bandEnd   last row the band routes over
+     * @throws IOException when the files cannot be read
+     */
+    ShardWorker(File image, File elevation, Season season, int loadStart, int loadEnd, int bandStart, int bandEnd)
+            throws IOException {
+        Terrain loaded = new Terrain(readRows(image, loadStart, loadEnd));
+        try (BufferedReader reader = new BufferedReader(new FileReader(elevation))) {
+            for (int row = 0; row < loadStart; row++)
+                reader.readLine();
+            loaded.setElevationGrid(new ElevationGrid(reader, loaded.width, loadEnd - loadStart));
+        }
+        // a band that is not the whole terrain spreads its mud as a window does, see TerrainWindow
+        loaded.setStepwiseMud(bandStart > 0 || bandEnd < loadEnd - 1);
+        this.terrain = loaded.forSeason(season);
+        this.model = new Orienteering(terrain, new PathList());
+        this.loadStart = loadStart;
+        this.bandStart = bandStart;
+        this.bandEnd = bandEnd;
+        this.width = terrain.width;
+        this.rows = bandEnd - bandStart + 1;
+        this.dist = new double[rows * width];
+        this.parent = new int[rows * width];
+    }
+
+    /**
+     * decodes only the given rows of an image
+     */
+    private static BufferedImage readRows(File image, int start, int end) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(image)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext())
+                throw new IOException(String.format("No image reader for \"%s\".", image));
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceRegion(new Rectangle(0, start, reader.getWidth(0), end - start));
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Dijkstra over the band from the seeds; a seed keeps its handed over time unless the band itself
+     * has a path that is at least as fast
+     *
+     * @param seeds  the seed pixels in band indexes
+     * @param times  time of each seed
+     * @param source true for each seed that is the start of the leg
+     * @return the number of pixels expanded
+     */
+    private int run(int[] seeds, double[] times, boolean[] source) {
+        clear();
+        PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        for (int i = 0; i < seeds.length; i++) {
+            if (times[i] < dist[seeds[i]]) {
+                dist[seeds[i]] = times[i];
+                parent[seeds[i]] = source[i] ? SOURCE : EXTERNAL;
+                queue.add(new double[]{times[i], seeds[i]});
+            }
+        }
+        int expanded = 0;
+        while (!queue.isEmpty()) {
+            double[] top = queue.poll();
+            int current = (int) top[1];
+            if (top[0] > dist[current])
+                continue;
+            expanded++;
+            int x = current % width, y = current / width;
+            Control from = toControl(current);
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    int xx = x + dx, yy = y + dy;
+                    if ((dx == 0 && dy == 0) || xx < 0 || yy < 0 || xx >= width || yy >= rows)
+                        continue;
+                    int next = yy * width + xx;
+                    double time = dist[current] + model.cost(from, toControl(next));
+                    if (time < Double.POSITIVE_INFINITY && time <= dist[next] && parent[next] != SOURCE) {
+                        boolean better = time < dist[next];
+                        dist[next] = time;
+                        parent[next] = current;
+                        if (better)
+                            queue.add(new double[]{time, next});
+                    }
+                }
+            }
+        }
+        return expanded;
+    }
+
+    /**
+     * forgets the times and parents of the last run
+     */
+    private void clear() {
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        Arrays.fill(parent, EXTERNAL);
+    }
+
+    /**
+     * @param i a band index
+     * @return the control on the loaded terrain for the band index
+     */
+    private Control toControl(int i) {
+        return new Control(i % width, i / width + bandStart - loadStart);
+    }
+
+    /**
+     * @return band index of a pixel in full terrain coordinates
+     */
+    private int toIndex(int x, int y) {
+        if (y < bandStart || y > bandEnd || x < 0 || x >= width)
+            throw new IllegalArgumentException(String.format("(%d,%d) is not in the band.", x, y));
+        return (y - bandStart) * width + x;
+    }
+
+    /**
+     * reads commands until told to quit
+     */
+    private void serve(BufferedReader in, PrintWriter out) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            String[] fields = line.split(" ");
+            switch (fields[0]) {
+                case "RUN": {
+                    int n = Integer.parseInt(fields[1]);
+                    int[] seeds = new int[n];
+                    double[] times = new double[n];
+                    boolean[] source = new boolean[n];
+                    for (int i = 0; i < n; i++) {
+                        String[] seed = in.readLine().split(" ");
+                        seeds[i] = toIndex(Integer.parseInt(seed[0]), Integer.parseInt(seed[1]));
+                        times[i] = Double.parseDouble(seed[2]);
+                        source[i] = seed[3].equals("1");
+                    }
+                    long begin = System.nanoTime();
+                    int expanded = run(seeds, times, source);
+                    long millis = (System.nanoTime() - begin) / 1_000_000;
+
+                    StringBuilder sb = new StringBuilder();
+                    int count = 0;
+                    for (int row : new int[]{0, rows - 1}) {
+                        for (int col = 0; col < width; col++) {
+                            double time = dist[row * width + col];
+                            if (time < Double.POSITIVE_INFINITY) {
+                                sb.append(col).append(' ').append(row + bandStart).append(' ').append(time).append('\n');
+                                count++;
+                            }
+                        }
+                        if (rows == 1)
+                            break;
+                    }
+                    out.print("OK " + millis + " " + count + " " + expanded + "\n" + sb);
+                    break;
+                }
+                case "CLEAR":
+                    clear();
+                    break;
+                case "DIST":
+                    out.println(dist[toIndex(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]))]);
+                    break;
+                case "TRACE": {
+                    int current = toIndex(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]));
+                    StringBuilder sb = new StringBuilder();
+                    int count = 0;
+                    while (true) {
+                        Control c = toControl(current);
+                        sb.append(c.getX()).append(' ').append(current / width + bandStart).append(' ')
+                                .append(terrain.getElevation(c.getX(), c.getY())).append('\n');
+                        count++;
+                        if (parent[current] < 0)
+                            break;
+                        current = parent[current];
+                    }
+                    out.print(count + " " + (parent[current] == SOURCE ? 1 : 0) + "\n" + sb);
+                    break;
+                }
+                case "QUIT":
+                    return;
+                default:
+                    throw new IllegalArgumentException(String.format("Unknown command \"%s\".", fields[0]));
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Loads the band and serves the coordinator
+     *
+     * @param args 0: the terrain image
+     *             1: the elevation file
+     *             2: season
+     *             3: first row to load
+     *             4: row after the last row to load
+     *             5: first row of the band
+     *             6: last row of the band
+     */
+    public static void main(String[] args) {
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+        try {
+            long begin = System.nanoTime();
+            ShardWorker worker = new ShardWorker(new File(args[0]), new File(args[1]), Season.fromString(args[2]),
+                    Integer.parseInt(args[3]), Integer.parseInt(args[4]),
+                    Integer.parseInt(args[5]), Integer.parseInt(args[6]));
+            out.println("READY " + (System.nanoTime() - begin) / 1_000_000);
+            out.flush();
+            worker.serve(new BufferedReader(new InputStreamReader(System.in)), out);
+        } catch (Exception e) {
+            e.printStackTrace();
+            out.println("ERR " + e);
+            out.flush();
+            System.exit(1);
+        }
+    }
+}
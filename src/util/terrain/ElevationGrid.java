@@ -2,29 +2,185 @@ package util.terrain;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.util.stream.IntStream;
 
 /**
  * class representing the elevation grid for a given terrain map
+ * <p>
+ * Along with the elevations, a derived layer is built once when the grid is loaded: the rise from every
+ * pixel to each of its neighbors and the slope at every pixel. The rise is only kept for the four
+ * neighbors to the east and below, the rise to the other four is the negated rise back from them. The
+ * rise is kept in doubles so a cost read from it is exactly the difference of the two elevations.
  *
  * @author Alex Wall (asw8675)
  */
 public class ElevationGrid {
 
-    /** the data structure to store the elevation grid */
-    private Double[][] elGrid;
+    /**
+     * meters across one pixel, east to west and north to south; the cost model measures steps with these too
+     */
+    public static final double PIXEL_WIDTH = 10.29, PIXEL_HEIGHT = 7.55;
+
+    /**
+     * number of neighbors whose rise is kept: east, south-west, south and south-east
+     */
+    private static final int DIRECTIONS = 4;
+
+    private final int width, height;
+
+    /**
+     * how every array of the grid is laid out
+     */
+    private final GridLayout layout;
+
+    /** elevation per pixel */
+    private final double[] elGrid;
+
+    /**
+     * rise per direction and pixel, elevation of the neighbor less elevation of the pixel; 0 where the
+     * neighbor is off the grid
+     */
+    private final double[][] rise;
+
+    /**
+     * steepest rise per meter at each pixel, from the central differences of its neighbors
+     */
+    private final float[] slope;
 
     public ElevationGrid(BufferedReader reader, int width, int height) throws IOException {
-        elGrid = new Double[height][width];
+        this(reader, new RowMajorLayout(width, height));
+    }
+
+    /**
+     * Constructor
+     *
+     * @param reader elevation file
+     * @param layout size of the grid and how its arrays are laid out
+     * @throws IOException when the file cannot be read
+     */
+    public ElevationGrid(BufferedReader reader, GridLayout layout) throws IOException {
+        this.width = layout.width();
+        this.height = layout.height();
+        this.layout = layout;
+        this.elGrid = new double[layout.size()];
         for (int row = 0; row < height; row++) {
             String line = reader.readLine().strip().replaceAll("\\s+", " ");
             String[] fields = line.split(" ");
             for (int col = 0; col < width; col++)
-                elGrid[row][col] = Double.valueOf(fields[col]);
+                elGrid[layout.index(col, row)] = Double.parseDouble(fields[col]);
         }
+        this.rise = new double[DIRECTIONS][layout.size()];
+        this.slope = new float[layout.size()];
+        buildLayer();
     }
 
-    public Double get(int x, int y) {
-        return elGrid[y][x];
+    /**
+     * Constructor for a rectangle of the elevation file; rows above it are skipped without being parsed,
+     * and only the fields of each row that are inside it are parsed
+     *
+     * @param reader elevation file
+     * @param left   first column to keep
+     * @param top    first row to keep
+     * @param width  number of columns to keep
+     * @param height number of rows to keep
+     * @throws IOException              when the file cannot be read
+     * @throws IllegalArgumentException if the file ends before the rectangle does
+     */
+    public ElevationGrid(BufferedReader reader, int left, int top, int width, int height) throws IOException {
+        this.width = width;
+        this.height = height;
+        this.layout = new RowMajorLayout(width, height);
+        this.elGrid = new double[width * height];
+        for (int row = 0; row < top; row++) {
+            if (reader.readLine() == null)
+                throw new IllegalArgumentException(String.format("Elevation file ends at row %d of %d.", row, top + height));
+        }
+        for (int row = 0; row < height; row++) {
+            String line = reader.readLine();
+            if (line == null)
+                throw new IllegalArgumentException(String.format("Elevation file ends at row %d of %d.", top + row, top + height));
+            int end = 0;
+            for (int col = 0; col < left + width; col++) {
+                int start = end;
+                while (start < line.length() && Character.isWhitespace(line.charAt(start)))
+                    start++;
+                end = start;
+                while (end < line.length() && !Character.isWhitespace(line.charAt(end)))
+                    end++;
+                if (start == end)
+                    throw new IllegalArgumentException(String.format("Elevation row %d ends at column %d of %d.",
+                            top + row, col, left + width));
+                if (col >= left)
+                    elGrid[row * width + col - left] = Double.parseDouble(line.substring(start, end));
+            }
+        }
+        this.rise = new double[DIRECTIONS][width * height];
+        this.slope = new float[width * height];
+        buildLayer();
+    }
+
+    /**
+     * works out the rise to the neighbors and the slope of every pixel, a row at a time in parallel
+     */
+    private void buildLayer() {
+        IntStream.range(0, height).parallel().forEach(y -> {
+            for (int x = 0; x < width; x++) {
+                int i = layout.index(x, y);
+                double el = elGrid[i];
+                if (x + 1 < width)
+                    rise[0][i] = get(x + 1, y) - el;
+                if (y + 1 < height) {
+                    if (x > 0)
+                        rise[1][i] = get(x - 1, y + 1) - el;
+                    rise[2][i] = get(x, y + 1) - el;
+                    if (x + 1 < width)
+                        rise[3][i] = get(x + 1, y + 1) - el;
+                }
+                int w = Math.max(0, x - 1), e = Math.min(width - 1, x + 1);
+                int n = Math.max(0, y - 1), s = Math.min(height - 1, y + 1);
+                double gx = e == w ? 0.0 : (get(e, y) - get(w, y)) / ((e - w) * PIXEL_WIDTH);
+                double gy = s == n ? 0.0 : (get(x, s) - get(x, n)) / ((s - n) * PIXEL_HEIGHT);
+                slope[i] = (float) Math.sqrt(gx * gx + gy * gy);
+            }
+        });
+    }
+
+    public double get(int x, int y) {
+        return elGrid[layout.index(x, y)];
+    }
+
+    /**
+     * the rise from one pixel to another, read from the derived layer when they are neighbors
+     *
+     * @param x   x coordinate of the first pixel
+     * @param y   y coordinate of the first pixel
+     * @param toX x coordinate of the second pixel
+     * @param toY y coordinate of the second pixel
+     * @return elevation of the second pixel less elevation of the first
+     */
+    public double rise(int x, int y, int toX, int toY) {
+        int dx = toX - x, dy = toY - y;
+        if (dx < -1 || dx > 1 || dy < -1 || dy > 1 || (dx == 0 && dy == 0))
+            return get(toX, toY) - get(x, y);
+        if (dy > 0 || (dy == 0 && dx > 0))
+            return rise[dy == 0 ? 0 : dx + 2][layout.index(x, y)];
+        return -rise[dy == 0 ? 0 : 2 - dx][layout.index(toX, toY)];
+    }
+
+    /**
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the steepest rise per meter at the pixel
+     */
+    public double slope(int x, int y) {
+        return slope[layout.index(x, y)];
+    }
+
+    /**
+     * @return approximate number of bytes the elevations and the derived layer take up
+     */
+    public long sizeInBytes() {
+        return 8L * elGrid.length * (1 + DIRECTIONS) + 4L * slope.length;
     }
 
     /**
@@ -33,10 +189,10 @@ public class ElevationGrid {
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder().append(
-                String.format("ElevationGrid: width=%d height=%d\n", elGrid[0].length, elGrid.length));
-        for (Double[] doubles : elGrid) {
-            for (int j = 0; j < elGrid[0].length; j++)
-                sb.append(String.format("[%f]", doubles[j]));
+                String.format("ElevationGrid: width=%d height=%d\n", width, height));
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++)
+                sb.append(String.format("[%f]", get(col, row)));
             sb.append("\n");
         }
         return sb.toString();
@@ -0,0 +1,61 @@
+package util.terrain;
+
+/**
+ * how the cells of a grid are laid out in a flat array; every per-pixel array of a terrain (pixels,
+ * elevations, distance fields, search state) is indexed through the terrain's layout
+ *
+ * @author Alex Wall (asw8675)
+ */
+public interface GridLayout {
+
+    /**
+     * @return number of columns in the grid
+     */
+    int width();
+
+    /**
+     * @return number of rows in the grid
+     */
+    int height();
+
+    /**
+     * @return length of an array laid out this way, which may be a little more than width * height
+     */
+    int size();
+
+    /**
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the position of the cell in the array, the cell is assumed to be on the grid
+     */
+    int index(int x, int y);
+
+    /**
+     * @param index a position in the array
+     * @return the x coordinate of the cell at the position
+     */
+    int x(int index);
+
+    /**
+     * @param index a position in the array
+     * @return the y coordinate of the cell at the position
+     */
+    int y(int index);
+
+    /**
+     * retrieve a layout by name, "row" for row-major or "tiled" for Morton ordered tiles
+     *
+     * @param name   the name of the layout
+     * @param width  number of columns
+     * @param height number of rows
+     * @return the layout
+     * @throws IllegalArgumentException if there is no layout by the name
+     */
+    static GridLayout fromString(String name, int width, int height) {
+        if (name.equalsIgnoreCase("row"))
+            return new RowMajorLayout(width, height);
+        if (name.equalsIgnoreCase("tiled"))
+            return new TiledLayout(width, height);
+        throw new IllegalArgumentException(String.format("No grid layout found for \"%s\".", name));
+    }
+}
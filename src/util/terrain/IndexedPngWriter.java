@@ -0,0 +1,131 @@
+package util.terrain;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes an 8-bit palette PNG one row at a time, so an image far larger than would fit into a
+ * BufferedImage can be written
+ *
+ * @author Alex Wall (asw8675)
+ */
+class IndexedPngWriter implements Closeable {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    /**
+     * compressed bytes are written out as an IDAT chunk every time this many have built up
+     */
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final DataOutputStream out;
+    private final DeflaterOutputStream deflater;
+    private final int width;
+
+    /**
+     * Constructor, writes everything up to the pixel data
+     *
+     * @param out     where to write the PNG, closed with this writer
+     * @param width   width of the image
+     * @param height  height of the image
+     * @param palette RGB color of each index
+     * @throws IOException when the PNG cannot be written
+     */
+    IndexedPngWriter(OutputStream out, int width, int height, int[] palette) throws IOException {
+        this.out = new DataOutputStream(out);
+        this.width = width;
+        this.out.write(SIGNATURE);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream h = new DataOutputStream(header);
+        h.writeInt(width);
+        h.writeInt(height);
+        h.writeByte(8);     // bit depth
+        h.writeByte(3);     // palette color type
+        h.writeByte(0);     // deflate
+        h.writeByte(0);     // adaptive filtering
+        h.writeByte(0);     // no interlace
+        writeChunk("IHDR", header.toByteArray(), header.size());
+
+        byte[] plte = new byte[palette.length * 3];
+        for (int i = 0; i < palette.length; i++) {
+            plte[3 * i] = (byte) (palette[i] >> 16);
+            plte[3 * i + 1] = (byte) (palette[i] >> 8);
+            plte[3 * i + 2] = (byte) palette[i];
+        }
+        writeChunk("PLTE", plte, plte.length);
+
+        this.deflater = new DeflaterOutputStream(new OutputStream() {
+            private final byte[] buffer = new byte[CHUNK_SIZE];
+            private int size;
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                while (len > 0) {
+                    int n = Math.min(len, CHUNK_SIZE - size);
+                    System.arraycopy(b, off, buffer, size, n);
+                    size += n;
+                    off += n;
+                    len -= n;
+                    if (size == CHUNK_SIZE)
+                        flush();
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (size > 0) {
+                    writeChunk("IDAT", buffer, size);
+                    size = 0;
+                }
+            }
+        }, new Deflater(Deflater.BEST_SPEED), CHUNK_SIZE);
+    }
+
+    /**
+     * writes the next row of the image
+     *
+     * @param indexes palette index of every pixel in the row
+     * @throws IOException when the row cannot be written
+     */
+    void writeRow(byte[] indexes) throws IOException {
+        deflater.write(0);  // no filter
+        deflater.write(indexes, 0, width);
+    }
+
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(name);
+        crc.update(data, 0, length);
+        out.writeInt(length);
+        out.write(name);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * finishes the pixel data and the PNG
+     *
+     * @throws IOException when the PNG cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        deflater.finish();
+        deflater.flush();
+        writeChunk("IEND", new byte[0], 0);
+        out.close();
+    }
+}
@@ -0,0 +1,107 @@
+package util.terrain;
+
+/**
+ * a PixelGrid that packs two pixels into every byte, each pixel is the 4-bit ordinal of its PixelColor
+ *
+ * @author Alex Wall (asw8675)
+ */
+public class PackedPixelGrid implements PixelGrid {
+
+    /**
+     * every PixelColor, indexed by ordinal
+     */
+    private static final PixelColor[] COLORS = PixelColor.values();
+
+    static {
+        if (COLORS.length > 16)
+            throw new ExceptionInInitializerError("PixelColor no longer fits into 4 bits.");
+    }
+
+    private final int width, height;
+
+    /**
+     * the order the pixels are packed in
+     */
+    private final GridLayout layout;
+
+    /**
+     * two pixels per byte, the even pixel is in the low nibble
+     */
+    private final byte[] nibbles;
+
+    /**
+     * Constructor for a row-major grid where every pixel is the first PixelColor until set
+     *
+     * @param width  number of columns
+     * @param height number of rows
+     */
+    public PackedPixelGrid(int width, int height) {
+        this(new RowMajorLayout(width, height));
+    }
+
+    /**
+     * Constructor for a grid where every pixel is the first PixelColor until set
+     *
+     * @param layout the order the pixels are packed in
+     */
+    public PackedPixelGrid(GridLayout layout) {
+        this.width = layout.width();
+        this.height = layout.height();
+        this.layout = layout;
+        this.nibbles = new byte[(int) (((long) layout.size() + 1) / 2)];
+    }
+
+    /**
+     * @return the order the pixels are packed in
+     */
+    public GridLayout layout() {
+        return layout;
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public PixelColor get(int row, int col) {
+        int i = index(row, col);
+        int b = nibbles[i >> 1];
+        return COLORS[(i & 1) == 0 ? b & 0x0F : (b >> 4) & 0x0F];
+    }
+
+    /**
+     * sets the pixel color at a given cell
+     *
+     * @param row the y coordinate
+     * @param col the x coordinate
+     * @param pc  the pixel color
+     */
+    public void set(int row, int col, PixelColor pc) {
+        int i = index(row, col);
+        int b = nibbles[i >> 1];
+        nibbles[i >> 1] = (byte) ((i & 1) == 0 ? (b & 0xF0) | pc.ordinal() : (b & 0x0F) | (pc.ordinal() << 4));
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return nibbles.length;
+    }
+
+    /**
+     * @param row the y coordinate
+     * @param col the x coordinate
+     * @return the position of the cell in the layout
+     * @throws IndexOutOfBoundsException if the cell is not on the grid
+     */
+    private int index(int row, int col) {
+        if (row < 0 || row >= height || col < 0 || col >= width)
+            throw new IndexOutOfBoundsException(String.format("(%d,%d) is not on the grid.", col, row));
+        return layout.index(col, row);
+    }
+}
@@ -0,0 +1,34 @@
+package util.terrain;
+
+/**
+ * a compact read-only grid of PixelColors, one per pixel of a terrain
+ *
+ * @author Alex Wall (asw8675)
+ */
+public interface PixelGrid {
+
+    /**
+     * @return number of columns in the grid
+     */
+    int width();
+
+    /**
+     * @return number of rows in the grid
+     */
+    int height();
+
+    /**
+     * gets the pixel color at a given cell
+     *
+     * @param row the y coordinate
+     * @param col the x coordinate
+     * @return the pixel color at the cell
+     * @throws IndexOutOfBoundsException if the cell is not on the grid
+     */
+    PixelColor get(int row, int col);
+
+    /**
+     * @return approximate number of bytes the grid data takes up
+     */
+    long sizeInBytes();
+}
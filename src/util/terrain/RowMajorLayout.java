@@ -0,0 +1,57 @@
+package util.terrain;
+
+/**
+ * a GridLayout with one row after another, the layout of the image and elevation files
+ *
+ * @author Alex Wall (asw8675)
+ */
+public class RowMajorLayout implements GridLayout {
+
+    private final int width, height;
+
+    /**
+     * Constructor
+     *
+     * @param width  number of columns
+     * @param height number of rows
+     */
+    public RowMajorLayout(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public int size() {
+        return width * height;
+    }
+
+    @Override
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    @Override
+    public int x(int index) {
+        return index % width;
+    }
+
+    @Override
+    public int y(int index) {
+        return index / width;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RowMajorLayout(%dx%d)", width, height);
+    }
+}
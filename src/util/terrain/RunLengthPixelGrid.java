@@ -0,0 +1,84 @@
+package util.terrain;
+
+import java.util.Arrays;
+
+/**
+ * a PixelGrid that stores every row as runs of the same PixelColor; worth it over the packed grid
+ * when the terrain has large uniform areas
+ *
+ * @author Alex Wall (asw8675)
+ */
+public class RunLengthPixelGrid implements PixelGrid {
+
+    private static final PixelColor[] COLORS = PixelColor.values();
+
+    private final int width, height;
+
+    /**
+     * per row, the column that each run starts at
+     */
+    private final int[][] runStarts;
+
+    /**
+     * per row, the PixelColor ordinal of each run
+     */
+    private final byte[][] runColors;
+
+    /**
+     * Constructor, encodes the rows of another grid
+     *
+     * @param grid the grid to encode
+     */
+    public RunLengthPixelGrid(PixelGrid grid) {
+        this.width = grid.width();
+        this.height = grid.height();
+        this.runStarts = new int[height][];
+        this.runColors = new byte[height][];
+
+        int[] starts = new int[width];
+        byte[] colors = new byte[width];
+        for (int row = 0; row < height; row++) {
+            int runs = 0;
+            PixelColor last = null;
+            for (int col = 0; col < width; col++) {
+                PixelColor pc = grid.get(row, col);
+                if (pc != last) {
+                    starts[runs] = col;
+                    colors[runs] = (byte) pc.ordinal();
+                    runs++;
+                    last = pc;
+                }
+            }
+            runStarts[row] = Arrays.copyOf(starts, runs);
+            runColors[row] = Arrays.copyOf(colors, runs);
+        }
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public PixelColor get(int row, int col) {
+        if (row < 0 || row >= height || col < 0 || col >= width)
+            throw new IndexOutOfBoundsException(String.format("(%d,%d) is not on the grid.", col, row));
+        int run = Arrays.binarySearch(runStarts[row], col);
+        if (run < 0)
+            run = -run - 2;
+        return COLORS[runColors[row][run]];
+    }
+
+    @Override
+    public long sizeInBytes() {
+        long size = 0;
+        for (int row = 0; row < height; row++)
+            size += runStarts[row].length * 5L;
+        return size;
+    }
+}
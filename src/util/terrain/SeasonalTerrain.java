@@ -0,0 +1,148 @@
+package util.terrain;
+
+import util.PathList;
+import util.point.Control;
+import util.point.Point;
+import util.season.Season;
+
+import java.awt.image.BufferedImage;
+import java.util.*;
+
+/**
+ * a read-only view of a base terrain for a given season; only the pixels that the season changes
+ * (frozen water, mud, fall footpaths) are stored here, everything else is looked up on the base terrain
+ *
+ * @author Alex Wall (asw8675)
+ */
+public class SeasonalTerrain extends Terrain {
+
+    /**
+     * the terrain that this view is laid over
+     */
+    private final Terrain base;
+
+    /**
+     * the season this view represents
+     */
+    private final Season season;
+
+    /**
+     * pixels changed by the season, as row * width + col, sorted so a pixel is found by binary search
+     */
+    private final int[] delta;
+
+    /**
+     * where each row starts in the delta, so a pixel is only searched for among the changes of its row;
+     * one more than the height, the last is the delta's length
+     */
+    private final int[] rowStarts;
+
+    /**
+     * the pixel color every changed pixel becomes
+     */
+    private final PixelColor changedTo;
+
+    /**
+     * Constructor
+     *
+     * @param base    the terrain to lay this view over
+     * @param season  the season of this view
+     * @param changed the points (row, col) changed by the season
+     * @param pc      the pixel color the changed points become
+     */
+    SeasonalTerrain(Terrain base, Season season, Set<Point> changed, PixelColor pc) {
+        super(base);
+        this.base = base;
+        this.season = season;
+        int[] cells = new int[changed.size()];
+        int i = 0;
+        for (Point p : changed) {
+            cells[i++] = p.getX() * width + p.getY();
+        }
+        Arrays.sort(cells);
+        this.delta = cells;
+        this.rowStarts = new int[height + 1];
+        int k = 0;
+        for (int row = 0; row <= height; row++) {
+            while (k < cells.length && cells[k] < row * width)
+                k++;
+            rowStarts[row] = k;
+        }
+        this.changedTo = pc;
+    }
+
+    /**
+     * @return the season of this view
+     */
+    public Season getSeason() {
+        return season;
+    }
+
+    /**
+     * @return the number of pixels changed by the season
+     */
+    public int deltaSize() {
+        return delta.length;
+    }
+
+    /**
+     * @return the pixels changed by the season, as (x, y) controls
+     */
+    public List<Control> changedPixels() {
+        List<Control> changed = new ArrayList<>(delta.length);
+        for (int key : delta) {
+            changed.add(new Control(key % width, key / width));
+        }
+        return changed;
+    }
+
+    @Override
+    public PixelColor getPixel(int x, int y) {
+        int from = rowStarts[y], to = rowStarts[y + 1];
+        if (from < to && Arrays.binarySearch(delta, from, to, y * width + x) >= 0)
+            return changedTo;
+        return base.getPixel(x, y);
+    }
+
+    @Override
+    public double getElevation(int x, int y) {
+        return base.getElevation(x, y);
+    }
+
+    @Override
+    public double getRise(int x, int y, int toX, int toY) {
+        return base.getRise(x, y, toX, toY);
+    }
+
+    @Override
+    public double getSlope(int x, int y) {
+        return base.getSlope(x, y);
+    }
+
+    /**
+     * a view cannot be laid over another view, so the season is looked up on the base terrain
+     *
+     * @param season summer|fall|winter|spring
+     * @return the view of the base terrain for the season
+     */
+    @Override
+    public Terrain forSeason(Season season) {
+        return base.forSeason(season);
+    }
+
+    /**
+     * puts a path of the orienteer onto this terrain, with the seasonal pixels drawn in
+     *
+     * @param orienteer a list of controls that the orienteer has taken
+     * @return a modified image of this terrain with the seasonal pixels and the path
+     */
+    @Override
+    public BufferedImage putPath(PathList orienteer) {
+        BufferedImage newImage = copyImage();
+        for (int key : delta) {
+            newImage.setRGB(key % width, key / width, changedTo.getRGBFill());
+        }
+        drawPath(newImage, orienteer);
+        return newImage;
+    }
+}
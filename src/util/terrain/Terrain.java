@@ -8,30 +8,54 @@ import util.season.Winter;
 
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
-import java.awt.image.WritableRaster;
+import java.awt.image.IndexColorModel;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * class implementation of the park/terrain map that the orienteer would travel on
+ * class implementation of the park/terrain map that the orienteer would travel on; the terrain itself is
+ * never modified by a season, seasons are read through a {@link SeasonalTerrain} view from {@link #forSeason}
  *
  * @author Alex Wall (asw8675)
  */
 public class Terrain {
 
     /**
-     * image of the terrain map
+     * each pixel in an xy-coordinate map is a distinct PixelColor, packed so the decoded image
+     * does not have to be kept around
      */
-    private BufferedImage terrainImage;
+    private final PixelGrid map;
 
     /**
-     * each pixel in an xy-coordinate map is a distinct PixelColor
+     * how every per-pixel array of this terrain is laid out
      */
-    private PixelColor[][] map;
+    private final GridLayout layout;
 
-    private HashSet<Point> waterEdges;
-    private HashSet<Point> footPathNearForest;
+    private final HashSet<Point> waterEdges;
+    private final HashSet<Point> footPathNearForest;
 
-    private ElevationGrid elevationGrid;
+    private volatile ElevationGrid elevationGrid;
+
+    /**
+     * true to spread spring mud one step at a time from all the water at once
+     */
+    private volatile boolean stepwiseMud;
+
+    /**
+     * season views of this terrain, built the first time they are asked for
+     */
+    private final Map<Season, SeasonalTerrain> seasonViews;
+
+    /**
+     * every pixel color on this terrain, found the first time it is asked for
+     */
+    private volatile Set<PixelColor> colors;
+
+    /**
+     * color model of the terrain image, so an image drawn from this terrain is of the same type; null for
+     * an indexed image, whose palette may not have the colors a path is drawn in
+     */
+    private final ColorModel colorModel;
 
     /**
      * width and height of the terrain image
@@ -39,51 +63,123 @@ public class Terrain {
     public final int width, height;
 
     /**
-     * Constructor
+     * Constructor, the image is not referenced once the terrain is built
      *
      * @param imageReader buffered image of the terrain
      */
     public Terrain(BufferedImage imageReader) {
-        this.terrainImage = imageReader;
+        this(imageReader, false);
+    }
+
+    /**
+     * Constructor, the image is not referenced once the terrain is built
+     *
+     * @param imageReader buffered image of the terrain
+     * @param runLength   true to store rows run-length encoded, which is smaller for terrains with
+     *                    large uniform areas; otherwise, every pixel is packed into 4 bits
+     */
+    public Terrain(BufferedImage imageReader, boolean runLength) {
+        this(imageReader, runLength, new RowMajorLayout(imageReader.getWidth(), imageReader.getHeight()));
+    }
+
+    /**
+     * Constructor, the image is not referenced once the terrain is built
+     *
+     * @param imageReader buffered image of the terrain
+     * @param runLength   true to store rows run-length encoded, which is smaller for terrains with
+     *                    large uniform areas; otherwise, every pixel is packed into 4 bits
+     * @param layout      how the packed pixels and any other per-pixel array of the terrain are laid out
+     * @throws IllegalArgumentException if the layout is not the size of the image
+     */
+    public Terrain(BufferedImage imageReader, boolean runLength, GridLayout layout) {
         this.width = imageReader.getWidth();
         this.height = imageReader.getHeight();
+        if (layout.width() != width || layout.height() != height)
+            throw new IllegalArgumentException(String.format("Layout of %dx%d does not fit a %dx%d terrain.",
+                    layout.width(), layout.height(), width, height));
 
+        this.layout = layout;
+        this.colorModel = imageReader.getColorModel() instanceof IndexColorModel ? null : imageReader.getColorModel();
         this.waterEdges = new HashSet<>();
         this.footPathNearForest = new HashSet<>();
-        this.map = new PixelColor[height][width];
-        readImage();
+        this.seasonViews = new ConcurrentHashMap<>();
+        PackedPixelGrid packed = readImage(imageReader);
+        this.map = runLength ? new RunLengthPixelGrid(packed) : packed;
+    }
+
+    /**
+     * Constructor for a view, shares all the data of the given terrain
+     *
+     * @param base the terrain to share
+     */
+    protected Terrain(Terrain base) {
+        this(base, base.width, base.height);
     }
 
     /**
-     * reads an image pixel by pixel; any special pixels that needs attention would be placed in a hashset
+     * Constructor for a view that shares all the data of the given terrain, but is laid over a terrain
+     * of a different size
+     *
+     * @param base   the terrain to share
+     * @param width  width of the view
+     * @param height height of the view
      */
-    private void readImage() {
+    protected Terrain(Terrain base, int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.waterEdges = base.waterEdges;
+        this.footPathNearForest = base.footPathNearForest;
+        this.map = base.map;
+        this.colorModel = base.colorModel;
+        this.layout = width == base.width && height == base.height ? base.layout : new RowMajorLayout(width, height);
+        this.elevationGrid = base.elevationGrid;
+        this.stepwiseMud = base.stepwiseMud;
+        this.seasonViews = base.seasonViews;
+    }
+
+    /**
+     * reads an image row by row into a packed grid; any special pixels that needs attention would be
+     * placed in a hashset
+     *
+     * @param image the terrain image
+     * @return the packed grid of the image
+     */
+    private PackedPixelGrid readImage(BufferedImage image) {
+        PackedPixelGrid grid = new PackedPixelGrid(layout);
+        int[] rgbRow = new int[width];
         for (int row = 0; row < height; row++) {
+            image.getRGB(0, row, width, 1, rgbRow, 0, width);
             for (int col = 0; col < width; col++) {
-                PixelColor terrainPixel = PixelColor.fromHex(terrainImage.getRGB(col, row) & PixelColor.RGB_BYTES);
-                map[row][col] = terrainPixel;
-                if (terrainPixel == PixelColor.LAKE_SWAMP_MARSH && isWaterEdge(row, col)) {
+                grid.set(row, col, PixelColor.fromHex(rgbRow[col] & PixelColor.RGB_BYTES));
+            }
+        }
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                PixelColor terrainPixel = grid.get(row, col);
+                if (terrainPixel == PixelColor.LAKE_SWAMP_MARSH && isWaterEdge(grid, row, col)) {
                     waterEdges.add(new Point(row, col));
                 }
-                if (terrainPixel == PixelColor.FOOTPATH && isNearForest(row, col)) {
+                if (terrainPixel == PixelColor.FOOTPATH && isNearForest(grid, row, col)) {
                     footPathNearForest.add(new Point(row, col));
                 }
             }
         }
+        return grid;
     }
 
     /**
      * check if the adjacent pixels to a given coordinate is an EASY_MOVE_FOREST
+     * @param grid the pixel grid
      * @param row the y coordinate
      * @param col the x coordinate
      * @return true if the given coordinate pixel is adjacent to an EASY_MOVE_FOREST pixel; otherwise, false
      * @pre the given coordinate maps to a FOOTPATH coordinate
      */
-    private boolean isNearForest(int row, int col) {
+    private static boolean isNearForest(PixelGrid grid, int row, int col) {
         for (int y = -1; y <= 1; y++) {
             for (int x = -1; x <= 1; x++) {
                 try {
-                    PixelColor check = PixelColor.fromHex(terrainImage.getRGB(col + x, row + y) & PixelColor.RGB_BYTES);
+                    PixelColor check = grid.get(row + y, col + x);
                     if (check == PixelColor.EASY_MOVE_FOREST)
                         return true;
                 } catch (IndexOutOfBoundsException ignored) {
@@ -97,16 +193,17 @@ public class Terrain {
      * checks all sides of a given row and column on the terrain, if any of the sides is
      * not a water terrain or frozen water, then this pixel is an edge
      *
-     * @param row the y coordinate
-     * @param col the x coordinate
+     * @param grid the pixel grid
+     * @param row  the y coordinate
+     * @param col  the x coordinate
      * @return true if pixel is a water edge; otherwise, false
      * @pre the pixel at (col,row) is a water terrain
      */
-    private boolean isWaterEdge(int row, int col) {
+    private static boolean isWaterEdge(PixelGrid grid, int row, int col) {
         for (int y = -1; y <= 1; y++) {
             for (int x = -1; x <= 1; x++) {
                 try {
-                    PixelColor check = PixelColor.fromHex(terrainImage.getRGB(col + x, row + y) & PixelColor.RGB_BYTES);
+                    PixelColor check = grid.get(row + y, col + x);
                     if (check != PixelColor.LAKE_SWAMP_MARSH && check != PixelColor.FROZEN_WATER)
                         return true;
                 } catch (IndexOutOfBoundsException ignored) {
@@ -116,10 +213,29 @@ public class Terrain {
         return false;
     }
 
+    /**
+     * sets the elevation grid of this terrain, must be done before the spring view is built
+     *
+     * @param elevationGrid the elevation grid
+     */
     public void setElevationGrid(ElevationGrid elevationGrid) {
         this.elevationGrid = elevationGrid;
     }
 
+    /**
+     * chooses how spring mud is spread. The original BFS depends on the order the water edges are visited
+     * in, so a part of a terrain can get different mud than the whole terrain; spread one step at a time,
+     * see {@link Spring#mudTerrainSetByStep}, a part gets the same mud as the whole terrain spread that way.
+     *
+     * @param stepwise true to spread spring mud one step at a time; false for the original BFS
+     * @throws IllegalStateException if the spring view was already built the other way
+     */
+    public void setStepwiseMud(boolean stepwise) {
+        if (stepwise != stepwiseMud && seasonViews.containsKey(Season.SPRING))
+            throw new IllegalStateException("Spring view was already built with the other mud.");
+        this.stepwiseMud = stepwise;
+    }
+
     /**
      * gets the pixel color on the terrain with the given coordinates
      *
@@ -128,10 +244,62 @@ public class Terrain {
      * @return the pixel color at a given coordinate
      */
     public PixelColor getPixel(int x, int y) {
-        return map[y][x];
+        return map.get(y, x);
+    }
+
+    /**
+     * @return every pixel color on this terrain, found by a single scan the first time it is asked for
+     */
+    public Set<PixelColor> getColors() {
+        if (colors == null) {
+            EnumSet<PixelColor> found = EnumSet.noneOf(PixelColor.class);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    found.add(getPixel(x, y));
+                }
+            }
+            colors = Collections.unmodifiableSet(found);
+        }
+        return colors;
     }
 
-    public Double getElevation(int x, int y) { return elevationGrid.get(x,y);}
+    /**
+     * @return how every per-pixel array of this terrain is laid out
+     */
+    public GridLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * @return approximate number of bytes the pixel data of this terrain takes up
+     */
+    public long sizeInBytes() {
+        return map.sizeInBytes();
+    }
+
+    public double getElevation(int x, int y) { return elevationGrid.get(x,y);}
+
+    /**
+     * gets the rise from one pixel to another, precomputed for neighboring pixels
+     *
+     * @param x   x coordinate of the first pixel
+     * @param y   y coordinate of the first pixel
+     * @param toX x coordinate of the second pixel
+     * @param toY y coordinate of the second pixel
+     * @return elevation of the second pixel less elevation of the first
+     */
+    public double getRise(int x, int y, int toX, int toY) {
+        return elevationGrid.rise(x, y, toX, toY);
+    }
+
+    /**
+     * @param x x coordinate for a point
+     * @param y y coordinate for a point
+     * @return the steepest rise per meter at the pixel, precomputed
+     */
+    public double getSlope(int x, int y) {
+        return elevationGrid.slope(x, y);
+    }
 
     /**
      * puts a path of the orienteer onto this terrain
@@ -141,45 +309,77 @@ public class Terrain {
      * @return a modified image of this terrain with the path
      */
     public BufferedImage putPath(PathList orienteer) {
-        ColorModel cm = terrainImage.getColorModel();
-        WritableRaster wr = terrainImage.copyData(terrainImage.getRaster().createCompatibleWritableRaster());
-        BufferedImage newImage =
-                new BufferedImage(cm, wr, terrainImage.isAlphaPremultiplied(), null);
+        BufferedImage newImage = copyImage();
+        drawPath(newImage, orienteer);
+        return newImage;
+    }
 
+    /**
+     * @return a new image of the terrain, drawn from the pixel grid, that is safe to draw on; it is of the
+     * same type as the terrain image, or RGB if that was indexed
+     */
+    protected BufferedImage copyImage() {
+        BufferedImage image = colorModel == null
+                ? new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB)
+                : new BufferedImage(colorModel, colorModel.createCompatibleWritableRaster(width, height),
+                colorModel.isAlphaPremultiplied(), null);
+        int[] rgbRow = new int[width];
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                rgbRow[col] = map.get(row, col).getRGBFill();
+            }
+            image.setRGB(0, row, width, 1, rgbRow, 0, width);
+        }
+        return image;
+    }
+
+    /**
+     * draws the orienteer's path onto an image
+     *
+     * @param image     the image to draw on
+     * @param orienteer a list of controls that the orienteer has taken
+     */
+    protected static void drawPath(BufferedImage image, PathList orienteer) {
         while (orienteer.hasNext()) {
             Point c = orienteer.dequeue();
-            newImage.setRGB(c.getX(), c.getY(), PixelColor.ME.getRGBFill());
+            image.setRGB(c.getX(), c.getY(), PixelColor.ME.getRGBFill());
         }
-        return newImage;
     }
 
     /**
-     * Depending on the season, parts of the terrain are likely to change
+     * Depending on the season, parts of the terrain are likely to change; the changes are kept in a view
+     * over this terrain so one terrain can be routed for several seasons at the same time. Views are built
+     * once per season and cached.
+     *
+     * @param season summer|fall|winter|spring
+     * @return the view of this terrain for the season
+     * @throws IllegalStateException if the spring view is asked for before the elevation grid is set
+     */
+    public Terrain forSeason(Season season) {
+        return seasonViews.computeIfAbsent(season, this::buildSeason);
+    }
+
+    /**
+     * builds the view of this terrain for a season
      *
      * @param season summer|fall|winter|spring
+     * @return the season view
      */
-    public void modifyBySeason(Season season) {
+    private SeasonalTerrain buildSeason(Season season) {
         switch (season) {
             case WINTER:
-                for (Point p : Winter.freezeWaterSet(map, waterEdges)) {
-                    terrainImage.setRGB(p.getY(), p.getX(), PixelColor.FROZEN_WATER.getRGBFill());
-                    map[p.getX()][p.getY()] = PixelColor.FROZEN_WATER;
-                }
-                break;
+                return new SeasonalTerrain(this, season,
+                        Winter.freezeWaterSet(map, waterEdges), PixelColor.FROZEN_WATER);
             case SPRING:
-                for(Point p: Spring.mudTerrainSet(map, elevationGrid, waterEdges)) {
-                    terrainImage.setRGB(p.getY(), p.getX(), PixelColor.MUD.getRGBFill());
-                    map[p.getX()][p.getY()] = PixelColor.MUD;
-                }
-                break;
+                if (elevationGrid == null)
+                    throw new IllegalStateException("Elevation grid must be set before the spring season.");
+                return new SeasonalTerrain(this, season, stepwiseMud
+                        ? Spring.mudTerrainSetByStep(map, elevationGrid, waterEdges)
+                        : Spring.mudTerrainSet(map, elevationGrid, waterEdges), PixelColor.MUD);
             case FALL:
-                for(Point p: footPathNearForest){
-                    terrainImage.setRGB(p.getY(), p.getX(), PixelColor.FALL_FOOTPATH.getRGBFill());
-                    map[p.getX()][p.getY()] = PixelColor.FALL_FOOTPATH;
-                }
-                break;
+                return new SeasonalTerrain(this, season, footPathNearForest, PixelColor.FALL_FOOTPATH);
             default:
-                break;
+                return new SeasonalTerrain(this, season, Collections.emptySet(), null);
         }
     }
 
@@ -191,9 +391,9 @@ public class Terrain {
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append(String.format("util.terrain.Terrain: width=%d, height=%d\n", width, height));
-        for (PixelColor[] row : map) {
-            for (PixelColor pc : row) {
-                sb.append(pc.abbrev);
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                sb.append(getPixel(col, row).abbrev);
             }
             sb.append("\n");
         }
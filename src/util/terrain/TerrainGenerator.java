@@ -0,0 +1,244 @@
+package util.terrain;
+
+import java.io.*;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Generates synthetic terrains of any size for scale testing: a terrain image in the PixelColor palette,
+ * a matching elevation file in the same layout as the mpp.txt files, and random courses over them.
+ * <p>
+ * Every pixel is worked out on its own from seeded fractal value noise, so the terrain is written row by
+ * row without ever holding the whole map, and the same seed always gives the same files.
+ *
+ * @author Alex Wall (asw8675)
+ */
+public class TerrainGenerator {
+
+    /**
+     * rows worked out at a time, in parallel, before they are written
+     */
+    private static final int ROW_BATCH = 64;
+
+    /**
+     * noise layers, each is the seed offset of an independent noise field
+     */
+    private static final int ELEVATION = 1, WATER = 2, VEGETATION = 3, THICKET = 4, FOOTPATHS = 5, TRAILS = 6, ROADS = 7;
+
+    private final int width, height;
+    private final long seed;
+
+    /**
+     * width of the out of bounds border around the map
+     */
+    private final int border;
+
+    /**
+     * Constructor
+     *
+     * @param width  width of the terrain
+     * @param height height of the terrain
+     * @param seed   seed of the noise, courses and everything else random
+     * @throws IllegalArgumentException if the terrain is smaller than 16 pixels on a side
+     */
+    public TerrainGenerator(int width, int height, long seed) {
+        if (width < 16 || height < 16)
+            throw new IllegalArgumentException(String.format("Terrain of %dx%d is too small.", width, height));
+        this.width = width;
+        this.height = height;
+        this.seed = seed;
+        this.border = Math.max(2, Math.min(width, height) / 50);
+    }
+
+    /**
+     * hashes a lattice point of a noise layer to a value in [0, 1)
+     */
+    private double lattice(int layer, int x, int y) {
+        long h = seed * 0x9E3779B97F4A7C15L + layer;
+        h ^= x * 0xC2B2AE3D27D4EB4FL;
+        h ^= y * 0x165667B19E3779F9L;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return (h >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * smoothly interpolated value noise in [0, 1)
+     */
+    private double noise(int layer, double x, double y) {
+        int xi = (int) Math.floor(x), yi = (int) Math.floor(y);
+        double fx = x - xi, fy = y - yi;
+        fx = fx * fx * (3 - 2 * fx);
+        fy = fy * fy * (3 - 2 * fy);
+        double top = lattice(layer, xi, yi) + fx * (lattice(layer, xi + 1, yi) - lattice(layer, xi, yi));
+        double bottom = lattice(layer, xi, yi + 1) + fx * (lattice(layer, xi + 1, yi + 1) - lattice(layer, xi, yi + 1));
+        return top + fy * (bottom - top);
+    }
+
+    /**
+     * fractal noise in [0, 1): octaves of value noise, each half the wavelength and amplitude of the last
+     *
+     * @param layer      the noise layer
+     * @param wavelength wavelength of the first octave in pixels
+     * @param octaves    number of octaves
+     */
+    private double fractal(int layer, double x, double y, double wavelength, int octaves) {
+        double sum = 0.0, amplitude = 1.0, total = 0.0;
+        for (int o = 0; o < octaves; o++) {
+            sum += amplitude * noise(layer * 31 + o, x / wavelength, y / wavelength);
+            total += amplitude;
+            amplitude /= 2;
+            wavelength /= 2;
+        }
+        return sum / total;
+    }
+
+    /**
+     * true if a pixel is on the line where a noise layer crosses one half, which makes winding networks
+     *
+     * @param halfWidth half the width of the line in pixels
+     */
+    private boolean onLine(int layer, int x, int y, double wavelength, int octaves, double halfWidth) {
+        double n = fractal(layer, x, y, wavelength, octaves);
+        if (Math.abs(n - 0.5) > 0.05)
+            return false;
+        double dx = fractal(layer, x + 1, y, wavelength, octaves) - n;
+        double dy = fractal(layer, x, y + 1, wavelength, octaves) - n;
+        double slope = Math.sqrt(dx * dx + dy * dy);
+        return slope > 0 && Math.abs(n - 0.5) / slope < halfWidth;
+    }
+
+    /**
+     * the elevation of a pixel, rolling hills a couple hundred meters high
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the elevation in meters
+     */
+    public double elevation(int x, int y) {
+        return 150.0 + 200.0 * fractal(ELEVATION, x, y, 512, 7);
+    }
+
+    /**
+     * the terrain of a pixel
+     *
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the PixelColor of the pixel
+     */
+    public PixelColor pixel(int x, int y) {
+        if (x < border || y < border || x >= width - border || y >= height - border)
+            return PixelColor.OUT_OF_BOUNDS;
+        // lakes lie in the low ground
+        double low = fractal(ELEVATION, x, y, 512, 2);
+        if (low + 0.5 * fractal(WATER, x, y, 256, 4) < 0.55)
+            return PixelColor.LAKE_SWAMP_MARSH;
+        if (onLine(ROADS, x, y, 512, 2, 1.5))
+            return PixelColor.PAVED_ROAD;
+        // two crossing path layers so the footpaths form a network instead of separate loops
+        if (onLine(FOOTPATHS, x, y, 192, 3, 0.6) || onLine(TRAILS, x, y, 256, 2, 0.6))
+            return PixelColor.FOOTPATH;
+        if (fractal(THICKET, x, y, 48, 3) > 0.8)
+            return PixelColor.IMPASSIBLE_VEGETATION;
+        double v = fractal(VEGETATION, x, y, 128, 5);
+        if (v < 0.36)
+            return PixelColor.OPEN_LAND;
+        if (v < 0.42)
+            return PixelColor.ROUGH_MEADOW;
+        if (v < 0.52)
+            return PixelColor.EASY_MOVE_FOREST;
+        if (v < 0.60)
+            return PixelColor.SLOW_RUN_FOREST;
+        return PixelColor.WALK_FOREST;
+    }
+
+    /**
+     * writes the terrain image as a palette PNG
+     *
+     * @param file the image file
+     * @throws IOException when the image cannot be written
+     */
+    public void writeTerrain(File file) throws IOException {
+        PixelColor[] colors = PixelColor.values();
+        int[] palette = new int[colors.length];
+        for (PixelColor pc : colors)
+            palette[pc.ordinal()] = pc.hex;
+        try (IndexedPngWriter png = new IndexedPngWriter(
+                new BufferedOutputStream(new FileOutputStream(file)), width, height, palette)) {
+            byte[][] rows = new byte[ROW_BATCH][width];
+            for (int start = 0; start < height; start += ROW_BATCH) {
+                int first = start, count = Math.min(ROW_BATCH, height - start);
+                IntStream.range(0, count).parallel().forEach(r -> {
+                    for (int x = 0; x < width; x++)
+                        rows[r][x] = (byte) pixel(x, first + r).ordinal();
+                });
+                for (int r = 0; r < count; r++)
+                    png.writeRow(rows[r]);
+            }
+        }
+    }
+
+    /**
+     * writes the elevation of every pixel, one row of the terrain per line
+     *
+     * @param file the elevation file
+     * @throws IOException when the file cannot be written
+     */
+    public void writeElevation(File file) throws IOException {
+        try (Writer out = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+            String[] rows = new String[ROW_BATCH];
+            for (int start = 0; start < height; start += ROW_BATCH) {
+                int first = start, count = Math.min(ROW_BATCH, height - start);
+                IntStream.range(0, count).parallel().forEach(r -> {
+                    StringBuilder sb = new StringBuilder(width * 10);
+                    for (int x = 0; x < width; x++)
+                        appendElevation(sb, elevation(x, first + r));
+                    rows[r] = sb.append('\n').toString();
+                });
+                for (int r = 0; r < count; r++)
+                    out.write(rows[r]);
+            }
+        }
+    }
+
+    /**
+     * appends an elevation with three decimals, much faster than String.format over millions of pixels
+     */
+    private static void appendElevation(StringBuilder sb, double elevation) {
+        long millis = Math.round(elevation * 1000);
+        sb.append("  ").append(millis / 1000).append('.');
+        long fraction = millis % 1000;
+        if (fraction < 100)
+            sb.append('0');
+        if (fraction < 10)
+            sb.append('0');
+        sb.append(fraction);
+    }
+
+    /**
+     * writes a random course of controls, each on a pixel that an orienteer can stand on
+     *
+     * @param file     the path file
+     * @param controls number of controls
+     * @param course   number of the course, so one seed can give many different courses
+     * @throws IOException when the file cannot be written
+     */
+    public void writeCourse(File file, int controls, int course) throws IOException {
+        Random random = new Random(seed * 1_000_003L + course);
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file)))) {
+            for (int i = 0; i < controls; i++) {
+                int x, y;
+                PixelColor pc;
+                do {
+                    x = border + random.nextInt(width - 2 * border);
+                    y = border + random.nextInt(height - 2 * border);
+                    pc = pixel(x, y);
+                } while (pc == PixelColor.LAKE_SWAMP_MARSH || pc == PixelColor.IMPASSIBLE_VEGETATION);
+                out.println(x + " " + y);
+            }
+        }
+    }
+}
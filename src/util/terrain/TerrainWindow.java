@@ -0,0 +1,245 @@
+package util.terrain;
+
+import util.PathList;
+import util.point.Control;
+import util.season.Season;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A rectangle of a terrain that was decoded on its own, for a course that only covers part of the map.
+ * The window is as wide and high as the full terrain and uses its coordinates, so a search over it
+ * behaves exactly as one over the full terrain, but only the decoded rectangle can be looked up.
+ * <p>
+ * The season is worked out over the whole decoded rectangle, but a pixel near a side that is not on
+ * the edge of the full terrain may be missing water that is just outside. Looking up any pixel within
+ * {@link #SEASON_HALO} of such a side throws an IndexOutOfBoundsException, so a search that gets that
+ * far is stopped instead of quietly routing over the wrong season.
+ * <p>
+ * Winter and fall reach a fixed distance from what they change, so their routable pixels are the same
+ * as on the full terrain. The original spring mud depends on the order the water edges of the whole
+ * terrain are visited in, which a window cannot know, so a window that is not the full terrain spreads
+ * its mud one step at a time instead; its routable pixels are then the same as on a full terrain with
+ * {@link Terrain#setStepwiseMud} set, but can differ from the default spring where waters at different
+ * heights meet. The {@code SeasonWindowHarness} checks this.
+ *
+ * @author Alex Wall (asw8675)
+ */
+public class TerrainWindow extends Terrain {
+
+    /**
+     * pixels decoded past each side of the routable area; the furthest a season reaches is spring mud at
+     * 15 pixels from the water, plus one pixel to find the water edges
+     */
+    public static final int SEASON_HALO = 17;
+
+    /**
+     * the season view of the decoded rectangle
+     */
+    private final Terrain base;
+
+    /**
+     * where the decoded rectangle is on the full terrain
+     */
+    private final int decodedLeft, decodedTop;
+
+    /**
+     * first and last pixels a search can look up
+     */
+    public final int left, top, right, bottom;
+
+    /**
+     * Constructor
+     *
+     * @param base       the season view of the decoded rectangle
+     * @param decoded    the decoded rectangle on the full terrain
+     * @param fullWidth  width of the full terrain
+     * @param fullHeight height of the full terrain
+     */
+    private TerrainWindow(Terrain base, Rectangle decoded, int fullWidth, int fullHeight) {
+        super(base, fullWidth, fullHeight);
+        this.base = base;
+        this.decodedLeft = decoded.x;
+        this.decodedTop = decoded.y;
+        this.left = decoded.x == 0 ? 0 : decoded.x + SEASON_HALO;
+        this.top = decoded.y == 0 ? 0 : decoded.y + SEASON_HALO;
+        this.right = decoded.x + decoded.width == fullWidth ? fullWidth - 1 : decoded.x + decoded.width - 1 - SEASON_HALO;
+        this.bottom = decoded.y + decoded.height == fullHeight ? fullHeight - 1 : decoded.y + decoded.height - 1 - SEASON_HALO;
+    }
+
+    /**
+     * decodes the terrain and elevations of a rectangle of the full terrain, plus the season halo around it
+     *
+     * @param image     the terrain image file
+     * @param elevation the elevation file
+     * @param season    the season to route in
+     * @param region    the rectangle that has to be routable, in full terrain coordinates; any part of it
+     *                  off the terrain is left out
+     * @return the window
+     * @throws IOException              when the files cannot be read
+     * @throws IllegalArgumentException if the rectangle is not on the terrain at all
+     */
+    public static TerrainWindow read(File image, File elevation, Season season, Rectangle region) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(image)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext())
+                throw new IOException(String.format("No image reader for \"%s\".", image));
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in);
+                int fullWidth = reader.getWidth(0), fullHeight = reader.getHeight(0);
+                Rectangle full = new Rectangle(0, 0, fullWidth, fullHeight);
+                if (region.intersection(full).isEmpty())
+                    throw new IllegalArgumentException(String.format("Window %s is not on the %dx%d terrain.",
+                            region, fullWidth, fullHeight));
+                Rectangle decoded = new Rectangle(region.x - SEASON_HALO, region.y - SEASON_HALO,
+                        region.width + 2 * SEASON_HALO, region.height + 2 * SEASON_HALO).intersection(full);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceRegion(decoded);
+                Terrain terrain = new Terrain(reader.read(0, param));
+                try (BufferedReader elevations = new BufferedReader(new FileReader(elevation))) {
+                    terrain.setElevationGrid(new ElevationGrid(elevations, decoded.x, decoded.y, decoded.width, decoded.height));
+                }
+                terrain.setStepwiseMud(!decoded.equals(full));
+                return new TerrainWindow(terrain.forSeason(season), decoded, fullWidth, fullHeight);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * @return true if the window covers the full terrain, so no search can ever run out of it
+     */
+    public boolean isFull() {
+        return base.width == width && base.height == height;
+    }
+
+    /**
+     * @return width of the routable part of the window
+     */
+    public int windowWidth() {
+        return right - left + 1;
+    }
+
+    /**
+     * @return height of the routable part of the window
+     */
+    public int windowHeight() {
+        return bottom - top + 1;
+    }
+
+    /**
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return true if a search can look up the pixel
+     */
+    public boolean isRoutable(int x, int y) {
+        return x >= left && y >= top && x <= right && y <= bottom;
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if the pixel is not routable
+     */
+    private void check(int x, int y) {
+        if (!isRoutable(x, y))
+            throw new IndexOutOfBoundsException(String.format("(%d,%d) is outside the routable part of the window at (%d,%d).",
+                    x, y, left, top));
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if the pixel is not routable
+     */
+    @Override
+    public PixelColor getPixel(int x, int y) {
+        check(x, y);
+        return base.getPixel(x - decodedLeft, y - decodedTop);
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if the pixel is not routable
+     */
+    @Override
+    public double getElevation(int x, int y) {
+        check(x, y);
+        return base.getElevation(x - decodedLeft, y - decodedTop);
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if either pixel is not routable
+     */
+    @Override
+    public double getRise(int x, int y, int toX, int toY) {
+        check(x, y);
+        check(toX, toY);
+        return base.getRise(x - decodedLeft, y - decodedTop, toX - decodedLeft, toY - decodedTop);
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if the pixel is not routable
+     */
+    @Override
+    public double getSlope(int x, int y) {
+        check(x, y);
+        return base.getSlope(x - decodedLeft, y - decodedTop);
+    }
+
+    /**
+     * only the decoded rectangle can be scanned, so its colors stand in for the full terrain's
+     *
+     * @return every pixel color of the decoded rectangle
+     */
+    @Override
+    public Set<PixelColor> getColors() {
+        return base.getColors();
+    }
+
+    /**
+     * the window already is for a season, so any other season is looked up on the decoded rectangle
+     * without the halo check
+     *
+     * @param season summer|fall|winter|spring
+     * @return the view of the decoded rectangle for the season
+     */
+    @Override
+    public Terrain forSeason(Season season) {
+        return base.forSeason(season);
+    }
+
+    /**
+     * puts a path of the orienteer onto an image of the routable part of the window, only as big as it
+     *
+     * @param orienteer a list of controls that the orienteer has taken
+     * @return a modified image of the window with the path
+     */
+    @Override
+    public BufferedImage putPath(PathList orienteer) {
+        List<Control> path = new ArrayList<>();
+        while (orienteer.hasNext()) {
+            Control c = orienteer.dequeue();
+            path.add(new Control(c.getX() - decodedLeft, c.getY() - decodedTop));
+        }
+        return base.putPath(new PathList(path))
+                .getSubimage(left - decodedLeft, top - decodedTop, windowWidth(), windowHeight());
+    }
+
+    /**
+     * @return string representation of this object, the size and place of the routable part of the window
+     */
+    @Override
+    public String toString() {
+        return String.format("util.terrain.TerrainWindow: %dx%d at (%d,%d) of %dx%d",
+                windowWidth(), windowHeight(), left, top, width, height);
+    }
+}
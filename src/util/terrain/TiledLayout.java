@@ -0,0 +1,102 @@
+package util.terrain;
+
+/**
+ * a GridLayout of 8x8 tiles, one row of tiles after another, with the 64 cells of a tile in Morton
+ * (Z) order; the eight neighbors of most cells are in the same tile, a few cache lines apart at most,
+ * where in row-major order the rows above and below are a whole row of the terrain away
+ *
+ * @author Alex Wall (asw8675)
+ */
+public class TiledLayout implements GridLayout {
+
+    /**
+     * bits of a tile's side, tiles are 8 cells across
+     */
+    private static final int TILE_BITS = 3;
+    private static final int TILE_MASK = (1 << TILE_BITS) - 1;
+
+    /**
+     * the 3 bits of a coordinate within a tile spread out to every other bit of the Morton code
+     */
+    private static final int[] SPREAD = new int[1 << TILE_BITS];
+
+    /**
+     * the x and y coordinates within a tile of each Morton code
+     */
+    private static final int[] UNSPREAD_X = new int[1 << (2 * TILE_BITS)], UNSPREAD_Y = new int[1 << (2 * TILE_BITS)];
+
+    static {
+        for (int v = 0; v < SPREAD.length; v++) {
+            int spread = 0;
+            for (int bit = 0; bit < TILE_BITS; bit++)
+                spread |= ((v >> bit) & 1) << (2 * bit);
+            SPREAD[v] = spread;
+        }
+        for (int x = 0; x < SPREAD.length; x++) {
+            for (int y = 0; y < SPREAD.length; y++) {
+                UNSPREAD_X[SPREAD[x] | (SPREAD[y] << 1)] = x;
+                UNSPREAD_Y[SPREAD[x] | (SPREAD[y] << 1)] = y;
+            }
+        }
+    }
+
+    private final int width, height;
+
+    /**
+     * number of tiles across the grid
+     */
+    private final int tilesX;
+
+    private final int size;
+
+    /**
+     * Constructor
+     *
+     * @param width  number of columns
+     * @param height number of rows
+     */
+    public TiledLayout(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.tilesX = (width + TILE_MASK) >> TILE_BITS;
+        this.size = tilesX * ((height + TILE_MASK) >> TILE_BITS) << (2 * TILE_BITS);
+    }
+
+    @Override
+    public int width() {
+        return width;
+    }
+
+    @Override
+    public int height() {
+        return height;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int index(int x, int y) {
+        int tile = (y >> TILE_BITS) * tilesX + (x >> TILE_BITS);
+        return (tile << (2 * TILE_BITS)) | SPREAD[x & TILE_MASK] | (SPREAD[y & TILE_MASK] << 1);
+    }
+
+    @Override
+    public int x(int index) {
+        int tile = index >> (2 * TILE_BITS);
+        return ((tile % tilesX) << TILE_BITS) | UNSPREAD_X[index & ((1 << (2 * TILE_BITS)) - 1)];
+    }
+
+    @Override
+    public int y(int index) {
+        int tile = index >> (2 * TILE_BITS);
+        return ((tile / tilesX) << TILE_BITS) | UNSPREAD_Y[index & ((1 << (2 * TILE_BITS)) - 1)];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TiledLayout(%dx%d)", width, height);
+    }
+}